@@ -1,7 +1,6 @@
 package gameserver.handler.voicedcommandhandlers;
 
 import gameserver.custom.manager.AutoFarmManager;
-import gameserver.custom.model.Hunter;
 import gameserver.custom.view.AutoFarmView;
 import gameserver.handler.IVoicedCommandHandler;
 import gameserver.model.actor.Player;
@@ -17,11 +16,12 @@ public class AutoFarm extends AutoFarmView implements IVoicedCommandHandler
 			player.sendMessage(player.getSysString(10_200));
 			return false;
 		}
-		final Hunter hunter = AutoFarmManager.getInstance().getOrDefault(player);
-		if (hunter.getEditingType() != null) {
-			hunter.resetEditing();
-		}
-		showIndex(hunter);
+		AutoFarmManager.getInstance().getOrDefault(player, hunter -> {
+			if (hunter.getEditingType() != null) {
+				hunter.resetEditing();
+			}
+			showIndex(hunter);
+		});
 		return true;
 	}
 	
@@ -13,6 +13,7 @@ import gameserver.network.serverpackets.ItemList;
 import config.Config;
 
 import static commons.math.MathUtil.parseInt;
+import static gameserver.custom.model.HunterImpl.MAX_RADIUS;
 import static gameserver.custom.model.HunterImpl.MAX_SKILLS;
 
 public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
@@ -29,24 +30,29 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
         }
 
         final AutoFarmManager autoFarmManager = AutoFarmManager.getInstance();
-        final Hunter hunter = autoFarmManager.getOrDefault(player);
-        final String arg = args[1].toLowerCase();
+        autoFarmManager.getOrDefault(player, hunter -> handleBypass(autoFarmManager, hunter, args));
+        return true;
+    }
 
+    private void handleBypass(AutoFarmManager autoFarmManager, Hunter hunter, String[] args) {
+        final Player player = hunter.getPlayer();
+        final String arg = args[1].toLowerCase();
 
         switch (arg) {
             case "index" -> showIndex(hunter);
 
             case "state" -> {
-                if (hunter.getRemainingMinutes() <= 0) {
+                if (hunter.getRemainingSeconds() <= 0) {
                     player.sendMessage("You did not have available auto farm time.");
-                    return false;
+                    return;
                 }
-                hunter.changeState();
+                autoFarmManager.changeState(hunter);
                 showIndex(hunter);
             }
 
             case "switch" -> {
                 hunter.changeHunterType();
+                autoFarmManager.onProfileChanged(hunter);
                 showIndex(hunter);
             }
 
@@ -58,7 +64,7 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
 
                     if (inventory.getItemCount(itemId) <= 0) {
                         player.sendMessage("You did not have this auto farm amulet in your inventory.");
-                        return false;
+                        return;
                     }
 
                     player.getInventory().destroyItemByItemId(3470, 1);
@@ -68,19 +74,21 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
                     player.sendMessage("The time was added successfully.");
 
                     showIndex(hunter);
-                    return false;
+                    return;
                 }
                 showBuyTime(hunter);
             }
 
             case "edit" -> {
                 handleEditCommand(hunter, args[2]);
+                autoFarmManager.onProfileChanged(hunter);
                 showIndex(hunter);
             }
 
             case "save" -> {
                 if (args.length == 4) {
                     handleSaveCommand(hunter, args[2], args[3]);
+                    autoFarmManager.onProfileChanged(hunter);
                 }
                 showIndex(hunter);
             }
@@ -90,7 +98,7 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
             case "page" -> {
                 final int page = parseInt(args[2]);
                 final int currentPage = parseInt(args[3]);
-                if (page == currentPage) return false;
+                if (page == currentPage) return;
 
                 showSkills(hunter, page);
             }
@@ -100,12 +108,13 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
                 if (firstEmpty == -1) {
                     player.sendMessage("You have reached the limit of " + MAX_SKILLS + " skills.");
                     showIndex(hunter);
-                    return false;
+                    return;
                 }
                 final int skillId = parseInt(args[2]);
                 final int currentPage = parseInt(args[3]);
 
                 hunter.assignSkillToSlot(firstEmpty, skillId);
+                autoFarmManager.onProfileChanged(hunter);
                 showSkills(hunter, currentPage);
             }
 
@@ -113,10 +122,10 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
                 final int slot = parseInt(args[2]);
 
                 hunter.removeSkillFromSlot(slot);
+                autoFarmManager.onProfileChanged(hunter);
                 showIndex(hunter);
             }
         }
-        return true;
     }
 
     @Override
@@ -143,7 +152,7 @@ public class AutoFarmHandler extends AutoFarmView implements IBypassHandler {
         if (parsedValue <= 0) return;
 
         switch (arg.toLowerCase()) {
-            case "radius" -> hunter.setRadius(Math.min(3000, parsedValue));
+            case "radius" -> hunter.setRadius(Math.min(MAX_RADIUS, parsedValue));
             case "hp" -> hunter.setMinHp(Math.max(10, Math.min(parsedValue, 90)));
             case "mp" -> hunter.setMinMp(Math.max(10, Math.min(parsedValue, 90)));
         }
@@ -1,31 +1,76 @@
 package gameserver.custom.manager;
 
+import commons.logging.CLogger;
 import commons.pool.ThreadPool;
+import gameserver.custom.dao.BaseDAO;
 import gameserver.custom.dao.HunterDAO;
+import gameserver.custom.dao.HunterJournal;
+import gameserver.custom.dao.HunterWriter;
+import gameserver.custom.model.DeadlineScheduler;
 import gameserver.custom.model.Hunter;
+import gameserver.custom.model.HunterDeadline;
 import gameserver.custom.model.HunterImpl;
+import gameserver.custom.model.HunterProfileCodec;
+import gameserver.custom.model.HunterState;
+import gameserver.custom.util.TickStats;
+import gameserver.model.WorldObject;
+import gameserver.model.actor.Creature;
 import gameserver.model.actor.Player;
+import gameserver.model.actor.instance.Monster;
+import gameserver.model.location.Location;
 import config.Config;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class AutoFarmManager implements Runnable {
+public class AutoFarmManager implements Runnable, DeadlineScheduler {
 
-    private int tickCount = 0;
+    private static final CLogger LOGGER = new CLogger(AutoFarmManager.class.getName());
+
+    private long tickCount = 0;
 
     protected final Map<Integer, Hunter> hunters = new ConcurrentHashMap<>();
-    protected final Queue<Hunter> pendingUpdates = new ConcurrentLinkedQueue<>();
-    protected final Queue<Integer> toRemove = new ConcurrentLinkedQueue<>();
+    protected final Map<Integer, Hunter> activeHunters = new ConcurrentHashMap<>();
+    protected final HunterWriteBehind writeBehind = new HunterWriteBehind();
+    protected final Map<Integer, Long> lastAccess = new ConcurrentHashMap<>();
+    protected final Map<Integer, CompletableFuture<Hunter>> loading = new ConcurrentHashMap<>();
+    protected final Queue<Player> prefetchQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<Purchase> purchases = new ConcurrentLinkedQueue<>();
+    protected final Map<Integer, Set<Integer>> targetWatchers = new ConcurrentHashMap<>();
+    protected final Map<Long, Set<Integer>> parkedByRegion = new ConcurrentHashMap<>();
 
     private final HunterDAO hunterDAO;
+    private final HunterWriter hunterWriter;
+    private final HunterJournal journal;
+    private final AutoFarmShard[] shards;
+    private final HunterTimingWheel timingWheel;
 
     public AutoFarmManager() {
         this.hunterDAO = new HunterDAO();
+        if (Config.AUTO_FARM_PRELOAD) preload();
+        this.hunterWriter = new HunterWriter();
+        this.journal = Config.AUTO_FARM_JOURNAL_ENABLED ? openJournal() : null;
+        this.shards = new AutoFarmShard[Math.max(1, Config.AUTO_FARM_TICK_SHARDS)];
+
+        final int slots = Math.max(1, Config.AUTO_FARM_TICK_SLOTS);
+        final long slotPeriod = Math.max(1, 1000 / slots);
+
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new AutoFarmShard(i, shards.length, slots, slotPeriod, this);
+            ThreadPool.scheduleAtFixedRate(shards[i], 1000 + slotPeriod * i / shards.length, slotPeriod);
+        }
+        this.timingWheel = new HunterTimingWheel(slotPeriod, this::onDeadline);
+        ThreadPool.scheduleAtFixedRate(timingWheel, slotPeriod, slotPeriod);
+
         ThreadPool.scheduleAtFixedRate(this, 1000, 1000);
     }
 
@@ -34,27 +79,203 @@ public class AutoFarmManager implements Runnable {
     }
 
     public void add(int id, Hunter hunter) {
+        hunter.setDeadlineScheduler(this);
         hunters.put(id, hunter);
+        lastAccess.put(id, System.currentTimeMillis());
+        if (hunter.isActive()) activate(hunter);
     }
 
-    public Hunter get(Player player) {
-        return hunters.get(player.getObjectId());
+    public void changeState(Hunter hunter) {
+        touch(hunter.getId());
+        hunter.changeState();
+        if (hunter.isActive()) {
+            activate(hunter);
+            return;
+        }
+        deactivate(hunter);
+    }
+
+    // Both run inside compute, so the shard and the timing wheel get the changes of a hunter in the order they happened
+    private void activate(Hunter hunter) {
+        activeHunters.compute(hunter.getId(), (id, current) -> {
+            if (current == hunter) return current;
+
+            getShard(id).add(hunter);
+            scheduleExpiry(hunter);
+            return hunter;
+        });
+    }
+
+    private void deactivate(Hunter hunter) {
+        // A hunter started again since it was seen stopped is left running
+        activeHunters.computeIfPresent(hunter.getId(), (id, current) -> {
+            if (current != hunter || hunter.isActive()) return current;
+
+            release(id);
+            return null;
+        });
+    }
+
+    private void deactivate(int id) {
+        activeHunters.computeIfPresent(id, (k, current) -> {
+            release(id);
+            return null;
+        });
+    }
+
+    private void release(int id) {
+        getShard(id).remove(id);
+        timingWheel.cancelAll(id);
+        TargetClaims.getInstance().releaseAll(id);
+    }
+
+    private void scheduleExpiry(Hunter hunter) {
+        timingWheel.schedule(hunter.getId(), HunterDeadline.EXPIRY, hunter.getRemainingSeconds() * 1000L, 0);
+    }
+
+    @Override
+    public void scheduleDeadline(int id, HunterDeadline deadline, long delay, int stamp) {
+        timingWheel.schedule(id, deadline, delay, stamp);
     }
 
-    public Hunter getOrDefault(Player player) {
-        Hunter hunter = get(player);
-        if (hunter != null) return hunter;
+    @Override
+    public void cancelDeadline(int id, HunterDeadline deadline) {
+        timingWheel.cancel(id, deadline);
+    }
 
-        hunter = hunterDAO.load(player);
+    private void onDeadline(int id, HunterDeadline deadline, int stamp) {
+        if (!activeHunters.containsKey(id)) return;
 
-        if (hunter == null) {
-            hunter = new HunterImpl(player, 0);
+        // Handled by the shard worker, the only thread touching the hunter routine state
+        if (deadline == HunterDeadline.EXPIRY) {
+            getShard(id).expire(id);
+            return;
         }
+        getShard(id).deadline(id, deadline, stamp);
+    }
 
-        add(hunter);
+    public Hunter get(Player player) {
+        final Hunter hunter = hunters.get(player.getObjectId());
+        if (hunter != null) touch(hunter.getId());
         return hunter;
     }
 
+    private void touch(int id) {
+        lastAccess.put(id, System.currentTimeMillis());
+    }
+
+    public void getOrDefault(Player player, Consumer<Hunter> action) {
+        final Hunter hunter = get(player);
+        if (hunter != null) {
+            action.accept(hunter);
+            return;
+        }
+
+        load(player).thenAccept(action).exceptionally(e -> {
+            LOGGER.warn("Couldn't load auto farm profile of {}.", e, player.getName());
+            return null;
+        });
+    }
+
+    public void prefetch(Player player) {
+        if (hunters.containsKey(player.getObjectId())) return;
+
+        if (hunterDAO.isPreloaded()) {
+            register(player, hunterDAO.load(player));
+            return;
+        }
+
+        if (loading.putIfAbsent(player.getObjectId(), new CompletableFuture<>()) == null) {
+            prefetchQueue.add(player);
+        }
+    }
+
+    private CompletableFuture<Hunter> load(Player player) {
+        // Served from memory, there is nothing worth handing to another thread
+        if (hunterDAO.isPreloaded()) return CompletableFuture.completedFuture(register(player, hunterDAO.load(player)));
+
+        final CompletableFuture<Hunter> future = loading.computeIfAbsent(player.getObjectId(),
+                id -> CompletableFuture.supplyAsync(() -> register(player, hunterDAO.load(player)), ThreadPool::execute));
+
+        // A failed load is forgotten so the next request tries the database again
+        future.whenComplete((hunter, e) -> {
+            if (e != null) loading.remove(player.getObjectId(), future);
+        });
+        return future;
+    }
+
+    private void flushPrefetch() {
+        if (prefetchQueue.isEmpty()) return;
+
+        List<Player> batch = new ArrayList<>();
+        Player player;
+        while ((player = prefetchQueue.poll()) != null) {
+            batch.add(player);
+
+            if (batch.size() >= Config.AUTO_FARM_BATCH_SIZE) {
+                loadBatch(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) loadBatch(batch);
+    }
+
+    private void loadBatch(List<Player> batch) {
+        ThreadPool.execute(() -> {
+            final Map<Integer, Hunter> loaded;
+            try {
+                loaded = hunterDAO.loadAll(batch);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Couldn't load {} auto farm profiles.", e, batch.size());
+
+                // Never registered with a default profile, it would overwrite the paid time on the next save
+                for (Player player : batch) {
+                    final CompletableFuture<Hunter> future = loading.remove(player.getObjectId());
+                    if (future != null) future.completeExceptionally(e);
+                }
+                return;
+            }
+
+            for (Player player : batch) {
+                final CompletableFuture<Hunter> future = loading.get(player.getObjectId());
+                if (future == null) continue;
+
+                future.complete(register(player, loaded.get(player.getObjectId())));
+            }
+        });
+    }
+
+    private Hunter register(Player player, Hunter loaded) {
+        final int id = player.getObjectId();
+        // Values of a previous session still waiting for the writer are newer than the database row
+        final Hunter unpersisted = writeBehind.getUnpersisted(id);
+        final Hunter hunter;
+        if (unpersisted != null) {
+            hunter = HunterProfileCodec.decode(player, unpersisted.getRemainingSeconds(), HunterProfileCodec.encode(unpersisted));
+        } else {
+            hunter = loaded != null ? loaded : new HunterImpl(player, 0);
+        }
+
+        try {
+            if (!player.isOnline()) return hunter;
+
+            hunter.setDeadlineScheduler(this);
+            final Hunter existing = hunters.putIfAbsent(id, hunter);
+            if (existing != null) return existing;
+
+            touch(id);
+            if (unpersisted == null) {
+                writeBehind.markLoaded(hunter);
+            } else {
+                writeBehind.markDirty(hunter, DirtyField.REMAINING_TIME);
+                writeBehind.markDirty(hunter, DirtyField.PROFILE);
+            }
+            return hunter;
+        } finally {
+            loading.remove(id);
+        }
+    }
+
     public void remove(Player player) {
         remove(player.getObjectId());
     }
@@ -65,73 +286,429 @@ public class AutoFarmManager implements Runnable {
 
     public void remove(int id) {
         hunters.remove(id);
+        lastAccess.remove(id);
+        deactivate(id);
+        if (!writeBehind.isDirty(id)) writeBehind.forget(id);
+    }
+
+    public void onLogout(Player player) {
+        final Hunter hunter = hunters.get(player.getObjectId());
+        if (hunter == null) return;
+
+        hunter.pause();
+        markTimeDirty(hunter);
+        remove(hunter);
+
+        // Written now rather than on its slice, the player may come back before that
+        flush(writeBehind.drainHunter(hunter.getId()));
+    }
+
+    public int size() {
+        return hunters.size();
+    }
+
+    public int getActiveCount() {
+        return activeHunters.size();
+    }
+
+    public AutoFarmShard getShard(int id) {
+        return shards[Math.floorMod(id, shards.length)];
+    }
+
+    public AutoFarmShard[] getShards() {
+        return shards;
+    }
+
+    public long[] getShardTickDurations() {
+        final long[] durations = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            durations[i] = shards[i].getLastTickNanos();
+        }
+        return durations;
+    }
+
+    public long getTickPercentile(double percentile) {
+        final List<long[]> snapshots = new ArrayList<>(shards.length);
+        int total = 0;
+        for (AutoFarmShard shard : shards) {
+            final long[] snapshot = shard.getSlotStats().snapshot();
+            snapshots.add(snapshot);
+            total += snapshot.length;
+        }
+
+        final long[] merged = new long[total];
+        int position = 0;
+        for (long[] snapshot : snapshots) {
+            System.arraycopy(snapshot, 0, merged, position, snapshot.length);
+            position += snapshot.length;
+        }
+        return TickStats.percentile(merged, percentile);
+    }
+
+    public long getTickSpike() {
+        long spike = 0;
+        for (AutoFarmShard shard : shards) {
+            spike = Math.max(spike, shard.getMaxTickNanos());
+        }
+        return spike;
+    }
+
+    public long getDeferredCount() {
+        long count = 0;
+        for (AutoFarmShard shard : shards) {
+            count += shard.getDeferredCount();
+        }
+        return count;
+    }
+
+    public long getSkippedCount() {
+        long count = 0;
+        for (AutoFarmShard shard : shards) {
+            count += shard.getSkippedCount();
+        }
+        return count;
+    }
+
+    public void resetTickStats() {
+        for (AutoFarmShard shard : shards) {
+            shard.getSlotStats().reset();
+        }
+    }
+
+    public void wake(int id) {
+        if (activeHunters.containsKey(id)) getShard(id).wake(id);
+    }
+
+    public void onDeath(Creature creature) {
+        if (creature instanceof Player) {
+            wake(creature.getObjectId());
+            return;
+        }
+
+        TargetClaims.getInstance().release(creature.getObjectId());
+
+        final Set<Integer> watchers = targetWatchers.remove(creature.getObjectId());
+        if (watchers == null) return;
+
+        for (int id : watchers) {
+            wake(id);
+        }
+    }
+
+    public void onSkillsChanged(Player player) {
+        final Hunter hunter = hunters.get(player.getObjectId());
+        if (hunter != null) hunter.compileSkillPlan();
+    }
+
+    public void onAttackFinished(Creature attacker) {
+        if (!(attacker instanceof Player)) return;
+
+        final Hunter hunter = activeHunters.get(attacker.getObjectId());
+        if (hunter == null || hunter.slotsInUse() == 0) return;
+
+        getShard(hunter.getId()).wake(hunter.getId());
+    }
+
+    public void onCastFinished(Creature caster) {
+        if (!(caster instanceof Player)) return;
+
+        final Hunter hunter = activeHunters.get(caster.getObjectId());
+        if (hunter == null) return;
+
+        getShard(hunter.getId()).wake(hunter.getId());
+    }
+
+    public void onSpawn(Monster monster) {
+        if (parkedByRegion.isEmpty() || monster.isRaidRelated()) return;
+
+        final int cellX = RegionKey.cell(monster.getX());
+        final int cellY = RegionKey.cell(monster.getY());
+        final int range = RegionKey.cellsFor(HunterImpl.MAX_RADIUS);
+        boolean woken = false;
+
+        for (int x = cellX - range; x <= cellX + range; x++) {
+            for (int y = cellY - range; y <= cellY + range; y++) {
+                final Set<Integer> parked = parkedByRegion.get(RegionKey.ofCell(x, y));
+                if (parked == null) continue;
+
+                for (int id : parked) {
+                    final Hunter hunter = activeHunters.get(id);
+                    if (hunter != null && hunter.getPlayer().distance2D(monster) <= hunter.getRadius()) {
+                        getShard(id).wake(id);
+                        woken = true;
+                    }
+                }
+            }
+        }
+
+        // A woken hunter would otherwise look at a scan taken before the spawn and park again
+        if (woken) MonsterScanCache.getInstance().invalidate(monster);
+    }
+
+    void updateParking(HunterTask task) {
+        final boolean parked = task.hunter.isActive() && task.hunter.getState() == HunterState.PARKED;
+        if (parked == task.parked) return;
+
+        if (!parked) {
+            unpark(task);
+            return;
+        }
+
+        final Location start = task.hunter.getStartLocation();
+        task.parkedRegion = RegionKey.of(start.getX(), start.getY());
+        task.parked = true;
+        parkedByRegion.computeIfAbsent(task.parkedRegion, k -> ConcurrentHashMap.newKeySet()).add(task.getId());
+    }
+
+    void unpark(HunterTask task) {
+        if (!task.parked) return;
+
+        parkedByRegion.computeIfPresent(task.parkedRegion, (k, parked) -> {
+            parked.remove(task.getId());
+            return parked.isEmpty() ? null : parked;
+        });
+        task.parked = false;
+    }
+
+    void watchTarget(HunterTask task) {
+        final WorldObject target = task.hunter.getPlayer().getTarget();
+        final int targetId = task.hunter.isActive() && target instanceof Monster ? target.getObjectId() : 0;
+        if (targetId == task.watchedTarget) return;
+
+        unwatchTarget(task);
+        if (targetId != 0) {
+            targetWatchers.computeIfAbsent(targetId, k -> ConcurrentHashMap.newKeySet()).add(task.getId());
+        }
+        task.watchedTarget = targetId;
+    }
+
+    void unwatchTarget(HunterTask task) {
+        if (task.watchedTarget == 0) return;
+
+        targetWatchers.computeIfPresent(task.watchedTarget, (k, watchers) -> {
+            watchers.remove(task.getId());
+            return watchers.isEmpty() ? null : watchers;
+        });
+        task.watchedTarget = 0;
     }
 
     public void save() {
-        hunterDAO.updateBatch(hunters.values());
+        hunters.values().forEach(this::markTimeDirty);
+        flushPendingUpdates();
+    }
+
+    public void shutdown() {
+        activeHunters.values().forEach(hunter -> {
+            hunter.settle();
+            markTimeDirty(hunter);
+        });
+        flushPendingUpdates();
+        hunterWriter.shutdown();
+
+        // Anything that failed while draining is written synchronously now
+        flushPendingUpdates();
+
+        if (journal != null) journal.close();
+    }
+
+    private void preload() {
+        try {
+            hunterDAO.preload();
+        } catch (RuntimeException e) {
+            LOGGER.error("Couldn't preload the auto farm table, profiles are loaded on demand.", e);
+        }
+    }
+
+    private HunterJournal openJournal() {
+        final HunterJournal hunterJournal = new HunterJournal(Paths.get(Config.AUTO_FARM_JOURNAL_PATH), Config.AUTO_FARM_JOURNAL_SIZE * 1024);
+
+        final Map<Integer, Integer> replayed;
+        try {
+            replayed = hunterJournal.open();
+        } catch (IOException e) {
+            LOGGER.error("Couldn't open the auto farm journal, balances are only saved in the database.", e);
+            return null;
+        }
+
+        if (!replayed.isEmpty()) {
+            try {
+                hunterDAO.updateBalances(replayed);
+                replayed.forEach(hunterJournal::markPersisted);
+                hunterJournal.compactIfNeeded();
+                LOGGER.info("Replayed {} auto farm balances from the journal.", replayed.size());
+            } catch (RuntimeException e) {
+                LOGGER.error("Couldn't replay {} auto farm balances, they are kept in the journal.", e, replayed.size());
+            }
+        }
+
+        final long syncInterval = Math.max(1, Config.AUTO_FARM_JOURNAL_SYNC_INTERVAL);
+        ThreadPool.scheduleAtFixedRate(hunterJournal::sync, syncInterval, syncInterval);
+        return hunterJournal;
+    }
+
+    public void onProfileChanged(Hunter hunter) {
+        writeBehind.markDirty(hunter, DirtyField.PROFILE);
+    }
+
+    private void markTimeDirty(Hunter hunter) {
+        if (journal != null) journal.append(hunter.getId(), hunter.getRemainingSeconds());
+        writeBehind.markDirty(hunter, DirtyField.REMAINING_TIME);
+    }
+
+    private void journalActive() {
+        activeHunters.values().forEach(hunter -> {
+            hunter.settle();
+            journal.append(hunter.getId(), hunter.getRemainingSeconds());
+        });
     }
 
     public void addMinutesAndSave(Hunter hunter, int minutes) {
         hunter.addMinutes(minutes);
-        hunterDAO.upsert(hunter);
+        if (activeHunters.containsKey(hunter.getId())) scheduleExpiry(hunter);
+
+        final int seconds = hunter.getRemainingSeconds();
+        if (journal != null) journal.append(hunter.getId(), seconds);
+
+        // Written with the next flush, in the same transaction as the balances
+        purchases.add(new Purchase(hunter, seconds));
+    }
+
+    public HunterWriter getWriter() {
+        return hunterWriter;
     }
 
     @Override
     public void run() {
-        if (hunters.isEmpty()) return;
+        flushPrefetch();
 
-        tickCount++;
+        if (hunters.isEmpty() && writeBehind.size() == 0 && purchases.isEmpty()) return;
 
-        hunters.forEach(this::processHunter);
+        final long tick = tickCount++;
 
-        if (tickCount >= Config.AUTO_FARM_SAVE_INTERVAL) {
-            flushPendingUpdates();
-            tickCount = 0;
-        }
+        // The journal keeps the balances between two database writes of the same hunter
+        if (journal != null && tick % Math.max(1, Config.AUTO_FARM_JOURNAL_INTERVAL) == 0) journalActive();
+
+        // Every active hunter is settled and written once per interval, on the tick matching its slice
+        final int slices = Math.max(1, Config.AUTO_FARM_SAVE_INTERVAL);
+        final int slice = (int) (tick % slices);
+
+        settleSlice(slice, slices);
+        flush(writeBehind.drain(slice, slices));
 
-        flushRemoving();
+        if (slice == slices - 1) evictIdle();
+
+        MonsterScanCache.getInstance().purge(10_000);
+        LineOfSightCache.getInstance().purge();
+        TargetClaims.getInstance().purge();
     }
 
-    private void processHunter(int id, Hunter hunter) {
+    void processHunter(int id, Hunter hunter) {
         if (hunter == null) return;
 
-        if (hunter.isOffline()) {
-            pendingUpdates.add(hunter);
-            toRemove.add(id);
+        if (!hunter.isActive()) {
+            deactivate(hunter);
             return;
         }
-        if (!hunter.isActive()) return;
 
-        if (hunter.isDead() || hunter.getRemainingMinutes() <= 0) {
-            hunter.stop();
-            pendingUpdates.add(hunter);
+        if (hunter.isDead()) {
+            stop(hunter);
             return;
         }
         hunter.executeRoutine();
+    }
+
+    void expire(Hunter hunter) {
+        if (!hunter.isActive()) return;
 
-        if (tickCount >= Config.AUTO_FARM_SAVE_INTERVAL) {
-            hunter.removeMinutes(1);
-            pendingUpdates.add(hunter);
+        // Time bought after the deadline was scheduled moves it forward
+        if (hunter.getRemainingSeconds() > 0) {
+            scheduleExpiry(hunter);
+            return;
         }
+        stop(hunter);
     }
 
-    private void flushPendingUpdates() {
-        final List<Hunter> batch = new ArrayList<>(pendingUpdates.size());
+    private void stop(Hunter hunter) {
+        hunter.stop();
+        deactivate(hunter);
+        markTimeDirty(hunter);
+    }
 
-        while (!pendingUpdates.isEmpty()) {
-            batch.add(pendingUpdates.poll());
-        }
+    private void settleSlice(int slice, int slices) {
+        activeHunters.forEach((id, hunter) -> {
+            if (Math.floorMod(id, slices) != slice) return;
 
-        if (batch.isEmpty()) return;
+            hunter.settle();
+            markTimeDirty(hunter);
+        });
+    }
 
-        hunterDAO.updateBatch(batch);
+    private void flushPendingUpdates() {
+        flush(writeBehind.drain());
     }
 
-    private void flushRemoving() {
-        Integer id;
-        while ((id = toRemove.poll()) != null) {
-            remove(id);
+    private void flush(HunterWriteBehind.Batch batch) {
+        final List<Purchase> bought = new ArrayList<>();
+        Purchase next;
+        while ((next = purchases.poll()) != null) {
+            bought.add(next);
         }
+        if (batch.isEmpty() && bought.isEmpty()) return;
+
+        hunterWriter.submit("flush " + batch.getHunters().size() + " hunters and " + bought.size() + " purchases",
+                () -> {
+                    try (BaseDAO.UnitOfWork work = hunterDAO.beginWork(Config.AUTO_FARM_COMMIT_SIZE)) {
+                        for (Purchase purchase : bought) {
+                            hunterDAO.upsert(work, purchase.hunter(), purchase.seconds());
+                        }
+                        hunterDAO.updateBatch(work, batch.getHunters(), batch.getSeconds(), batch.getProfiles());
+                        work.commit();
+                    }
+                },
+                () -> {
+                    for (Purchase purchase : bought) {
+                        writeBehind.markPersisted(purchase.hunter(), purchase.seconds());
+                        if (journal != null) journal.markPersisted(purchase.hunter().getId(), purchase.seconds());
+                    }
+                    writeBehind.markPersisted(batch);
+                    for (Hunter hunter : batch.getHunters()) {
+                        if (!hunters.containsKey(hunter.getId())) writeBehind.forget(hunter.getId());
+                    }
+
+                    if (journal != null) {
+                        for (int i = 0; i < batch.getHunters().size(); i++) {
+                            journal.markPersisted(batch.getHunters().get(i).getId(), batch.getSeconds(i));
+                        }
+                        journal.compactIfNeeded();
+                    }
+                },
+                () -> {
+                    // The balances are absolute, a later flush of the same hunters covers the purchases
+                    bought.forEach(purchase -> writeBehind.markDirty(purchase.hunter(), DirtyField.REMAINING_TIME));
+                    writeBehind.requeue(batch);
+                });
+    }
+
+    private void evictIdle() {
+        final long idleSince = System.currentTimeMillis() - Config.AUTO_FARM_IDLE_EVICTION * 60_000L;
+
+        hunters.forEach((id, hunter) -> {
+            // Offline hunters should already be gone through onLogout, this only catches a missed hook
+            if (hunter.isOffline()) {
+                hunter.pause();
+                markTimeDirty(hunter);
+                remove(id);
+                flush(writeBehind.drainHunter(id));
+                return;
+            }
+            if (hunter.isActive()) return;
+
+            final Long accessed = lastAccess.get(id);
+            if (accessed == null || accessed < idleSince) remove(id);
+        });
+    }
+
+    private record Purchase(Hunter hunter, int seconds) {
     }
 
     public static AutoFarmManager getInstance()
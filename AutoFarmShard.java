@@ -0,0 +1,280 @@
+package gameserver.custom.manager;
+
+import gameserver.custom.model.Hunter;
+import gameserver.custom.model.HunterDeadline;
+import gameserver.custom.util.TickStats;
+import gameserver.model.actor.Player;
+import config.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+public class AutoFarmShard implements Runnable {
+
+    // Carried over hunters stay first so the tick budget can't starve them, then hunters of a region run back to back
+    private static final Comparator<HunterTask> BY_DEFERRALS_THEN_REGION = Comparator.<HunterTask>comparingInt(task -> -task.deferrals).thenComparingLong(task -> task.region);
+
+    private final int index;
+    private final int shardCount;
+    private final AutoFarmManager manager;
+
+    // Only touched by the shard worker
+    private final Map<Integer, HunterTask> tasks = new HashMap<>();
+    private final ArrayDeque<Entry>[] buckets;
+    private final long slotPeriod;
+    private final long budgetNanos;
+    private final List<HunterTask> due = new ArrayList<>();
+    private final List<HunterTask> deferred = new ArrayList<>();
+    private int currentSlot = 0;
+
+    // Handed over by other threads, drained at the start of every slot
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> wakeups = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> expirations = new ConcurrentLinkedQueue<>();
+    private final Queue<Deadline> deadlines = new ConcurrentLinkedQueue<>();
+    private volatile int size;
+
+    private final TickStats slotStats = new TickStats();
+    private volatile long deferredCount;
+    private volatile long skippedCount;
+
+    @SuppressWarnings("unchecked")
+    public AutoFarmShard(int index, int shardCount, int slots, long slotPeriod, AutoFarmManager manager) {
+        this.index = index;
+        this.shardCount = shardCount;
+        this.manager = manager;
+        this.slotPeriod = slotPeriod;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Config.AUTO_FARM_TICK_BUDGET);
+        this.buckets = new ArrayDeque[Math.max(1, slots)];
+
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void add(Hunter hunter) {
+        changes.add(new Change(hunter.getId(), hunter));
+    }
+
+    public void remove(int id) {
+        changes.add(new Change(id, null));
+    }
+
+    public void wake(int id) {
+        wakeups.add(id);
+    }
+
+    public void expire(int id) {
+        expirations.add(id);
+    }
+
+    public void deadline(int id, HunterDeadline deadline, int stamp) {
+        deadlines.add(new Deadline(id, deadline, stamp));
+    }
+
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+
+        drainChanges();
+        drainExpirations();
+
+        final long now = System.currentTimeMillis();
+        drainDeadlines(now);
+        drainWakeups(now);
+
+        final ArrayDeque<Entry> bucket = buckets[currentSlot];
+        for (int i = bucket.size(); i > 0; i--) {
+            final Entry entry = bucket.poll();
+            final HunterTask task = entry.task;
+            if (task.removed || entry.generation != task.generation) continue;
+
+            if (now + slotPeriod / 2 < task.nextDueAt) {
+                bucket.add(entry);
+                continue;
+            }
+            markDue(task);
+        }
+
+        if (!due.isEmpty()) {
+            final long deadline = budgetNanos > 0 ? start + budgetNanos : Long.MAX_VALUE;
+
+            // The region scan is shared for the whole second anyway, this only keeps the hunters of a spot hot in cache
+            due.sort(BY_DEFERRALS_THEN_REGION);
+
+            for (HunterTask task : due) {
+                if (System.nanoTime() >= deadline) {
+                    deferred.add(task);
+                    continue;
+                }
+                tick(task, now);
+            }
+            due.clear();
+
+            if (!deferred.isEmpty()) deferToNextSlot();
+
+            slotStats.record(System.nanoTime() - start);
+        }
+
+        if (++currentSlot >= buckets.length) currentSlot = 0;
+    }
+
+    private void deferToNextSlot() {
+        final int nextSlot = (currentSlot + 1) % buckets.length;
+        final ArrayDeque<Entry> next = buckets[nextSlot];
+
+        // Deferred hunters go first on the next slot, so the same ones are never left behind
+        for (int i = deferred.size() - 1; i >= 0; i--) {
+            final HunterTask task = deferred.get(i);
+            task.due = false;
+            if (++task.deferrals == buckets.length) skippedCount++;
+            next.addFirst(new Entry(task, ++task.generation));
+        }
+        deferredCount += deferred.size();
+        deferred.clear();
+    }
+
+    private void tick(HunterTask task, long now) {
+        final Hunter hunter = task.hunter;
+        task.due = false;
+        task.deferrals = 0;
+
+        manager.processHunter(task.getId(), hunter);
+        manager.watchTarget(task);
+        manager.updateParking(task);
+
+        final Player player = hunter.getPlayer();
+        task.region = RegionKey.of(player.getX(), player.getY());
+
+        final long delay = hunter.isActive() ? hunter.getRoutineDelay() : Config.AUTO_FARM_IDLE_DELAY;
+        schedule(task, now, delay);
+    }
+
+    private void schedule(HunterTask task, long now, long delay) {
+        final long steps = Math.max(1, (delay + slotPeriod - 1) / slotPeriod);
+
+        task.nextDueAt = now + delay;
+        buckets[(int) ((currentSlot + Math.min(steps, buckets.length)) % buckets.length)].add(new Entry(task, ++task.generation));
+    }
+
+    private void markDue(HunterTask task) {
+        task.due = true;
+        due.add(task);
+    }
+
+    private void drainExpirations() {
+        Integer id;
+        while ((id = expirations.poll()) != null) {
+            final HunterTask task = tasks.get(id);
+            if (task == null || task.removed) continue;
+
+            manager.expire(task.hunter);
+        }
+    }
+
+    private void drainDeadlines(long now) {
+        Deadline fired;
+        while ((fired = deadlines.poll()) != null) {
+            final HunterTask task = tasks.get(fired.id);
+            if (task == null || task.removed) continue;
+
+            task.hunter.onDeadline(fired.deadline, fired.stamp);
+            wakeUp(task, now);
+        }
+    }
+
+    private void drainWakeups(long now) {
+        Integer id;
+        while ((id = wakeups.poll()) != null) {
+            final HunterTask task = tasks.get(id);
+            if (task == null || task.removed) continue;
+
+            wakeUp(task, now);
+        }
+    }
+
+    private void wakeUp(HunterTask task, long now) {
+        if (task.due) return;
+
+        // Ticked with the due hunters under the same budget, its bucket entry is left behind as stale
+        task.nextDueAt = now;
+        task.generation++;
+        markDue(task);
+    }
+
+    private void drainChanges() {
+        Change change;
+        while ((change = changes.poll()) != null) {
+            final HunterTask previous = tasks.get(change.id);
+            if (previous != null) {
+                if (previous.hunter == change.hunter) continue;
+                previous.removed = true;
+                tasks.remove(change.id);
+                manager.unwatchTarget(previous);
+                manager.unpark(previous);
+            }
+            if (change.hunter == null) continue;
+
+            final HunterTask task = new HunterTask(change.hunter);
+            tasks.put(change.id, task);
+            buckets[slotOf(change.id)].add(new Entry(task, task.generation));
+        }
+        size = tasks.size();
+    }
+
+    private int slotOf(int id) {
+        return Math.floorMod(id / shardCount, buckets.length);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSlots() {
+        return buckets.length;
+    }
+
+    public TickStats getSlotStats() {
+        return slotStats;
+    }
+
+    public long getLastTickNanos() {
+        return slotStats.getLast();
+    }
+
+    public long getMaxTickNanos() {
+        return slotStats.getMax();
+    }
+
+    public long getAverageTickNanos() {
+        return slotStats.getAverage();
+    }
+
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    private record Change(int id, Hunter hunter) {
+    }
+
+    private record Entry(HunterTask task, int generation) {
+    }
+
+    private record Deadline(int id, HunterDeadline deadline, int stamp) {
+    }
+}
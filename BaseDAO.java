@@ -7,6 +7,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BaseDAO {
 
@@ -27,6 +32,11 @@ public class BaseDAO {
         R apply(ResultSet rs) throws SQLException;
     }
 
+    @FunctionalInterface
+    protected interface SQLRowBinder<T> {
+        int bind(PreparedStatement ps, int index, T row) throws SQLException;
+    }
+
     @FunctionalInterface
     protected interface SQLConsumerWithSQL<T> {
         void accept(T t) throws SQLException;
@@ -51,8 +61,35 @@ public class BaseDAO {
             return mapper.apply(rs);
 
         } catch (SQLException e) {
-            LOGGER.info("Database query error for SQL: " + sql, e);
-            return null;
+            // A failed read must never be mistaken for a missing row
+            throw new DataAccessException("Database query error for SQL: " + sql, e);
+        }
+    }
+
+    protected int stream(String sql, int fetchSize, SQLConsumer<ResultSet> rowConsumer) {
+        try (Connection con = ConnectionPool.getConnection()) {
+            final boolean previousAutoCommit = con.getAutoCommit();
+
+            // Some drivers only honour the fetch size on a read-only cursor outside auto commit
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+
+                int rows = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rowConsumer.accept(rs);
+                        rows++;
+                    }
+                }
+                con.commit();
+                return rows;
+
+            } finally {
+                con.setAutoCommit(previousAutoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Database stream error for SQL: " + sql, e);
         }
     }
 
@@ -81,32 +118,182 @@ public class BaseDAO {
         }
     }
 
+    public UnitOfWork beginWork(int commitSize) {
+        return new UnitOfWork(commitSize);
+    }
+
+    protected <T> void executeMultiRow(UnitOfWork work, MultiRowStatement statement, List<T> rows, int chunkSize, SQLRowBinder<T> binder) {
+        if (rows.isEmpty()) return;
+
+        final int size = Math.max(1, chunkSize);
+        final int fullChunks = rows.size() / size;
+        final int remaining = rows.size() % size;
+
+        for (int chunk = 0; chunk < fullChunks; chunk++) {
+            final int from = chunk * size;
+            work.executeUpdate(statement.sql(size), ps -> bindRows(ps, rows, from, size, binder), size);
+        }
+        if (remaining > 0) {
+            work.executeUpdate(statement.sql(remaining), ps -> bindRows(ps, rows, fullChunks * size, remaining, binder), remaining);
+        }
+    }
+
+    private static <T> void bindRows(PreparedStatement ps, List<T> rows, int from, int count, SQLRowBinder<T> binder) throws SQLException {
+        int index = 1;
+        for (int i = from; i < from + count; i++) {
+            index = binder.bind(ps, index, rows.get(i));
+        }
+    }
+
+    protected static String multiRow(String prefix, String row, int rows, String suffix) {
+        final StringBuilder sb = new StringBuilder(prefix.length() + (row.length() + 1) * rows + suffix.length());
+        sb.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(row);
+        }
+        return sb.append(suffix).toString();
+    }
+
     protected void executeAllInTransaction(SQLConsumerPrepared... consumers) {
-        try (Connection con = ConnectionPool.getConnection()) {
-            final boolean previousAutoCommit = con.getAutoCommit();
-            con.setAutoCommit(false);
+        try (UnitOfWork work = beginWork(Integer.MAX_VALUE)) {
+            for (SQLConsumerPrepared consumerPrepared : consumers) {
+                if (consumerPrepared.batch) {
+                    work.executeBatch(consumerPrepared.sql, consumerPrepared.consumer);
+                } else {
+                    work.executeUpdate(consumerPrepared.sql, consumerPrepared.consumer, 1);
+                }
+            }
+            work.commit();
+        }
+    }
+
+    public static final class UnitOfWork implements AutoCloseable {
+        private final int commitSize;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private final List<Runnable> onCommit = new ArrayList<>();
+        private Connection con;
+        private boolean previousAutoCommit;
+        private int uncommitted;
+
+        private UnitOfWork(int commitSize) {
+            this.commitSize = Math.max(1, commitSize);
+        }
 
+        public void executeUpdate(String sql, SQLConsumer<PreparedStatement> binder, int rows) {
             try {
-                for (SQLConsumerPrepared consumerPrepared : consumers) {
-                    try (PreparedStatement ps = con.prepareStatement(consumerPrepared.sql)) {
-                        consumerPrepared.consumer.accept(ps);
-
-                        if (consumerPrepared.batch) {
-                            ps.executeBatch();
-                        } else {
-                            ps.executeUpdate();
-                        }
-                    }
-                }
-                con.commit();
+                final PreparedStatement ps = prepare(sql);
+                binder.accept(ps);
+                ps.executeUpdate();
+                written(rows);
             } catch (SQLException e) {
-                con.rollback();
-                throw new DataAccessException("Transaction failed", e);
-            } finally {
+                throw new DataAccessException("Unit of work failed for SQL: " + sql, e);
+            }
+        }
+
+        public void executeBatch(String sql, SQLConsumer<PreparedStatement> binder) {
+            try {
+                final PreparedStatement ps = prepare(sql);
+                binder.accept(ps);
+                written(ps.executeBatch().length);
+            } catch (SQLException e) {
+                throw new DataAccessException("Unit of work failed for SQL: " + sql, e);
+            }
+        }
+
+        public void onCommit(Runnable action) {
+            onCommit.add(action);
+        }
+
+        public void commit() {
+            try {
+                commitNow();
+            } catch (SQLException e) {
+                throw new DataAccessException("Unit of work commit failed", e);
+            }
+        }
+
+        // Anything not committed when the work is closed is rolled back
+        @Override
+        public void close() {
+            if (con == null) return;
+
+            try {
+                if (uncommitted > 0) con.rollback();
+            } catch (SQLException e) {
+                LOGGER.warn("Couldn't roll back an unit of work.", e);
+            }
+
+            for (PreparedStatement ps : statements.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException e) {
+                    LOGGER.warn("Couldn't close a statement of an unit of work.", e);
+                }
+            }
+            statements.clear();
+
+            try {
                 con.setAutoCommit(previousAutoCommit);
+                con.close();
+            } catch (SQLException e) {
+                LOGGER.warn("Couldn't release the connection of an unit of work.", e);
             }
-        } catch (SQLException e) {
-            throw new DataAccessException("Failed to get connection", e);
+            con = null;
+        }
+
+        private PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = connection().prepareStatement(sql);
+                statements.put(sql, ps);
+            }
+            return ps;
+        }
+
+        private Connection connection() throws SQLException {
+            if (con == null) {
+                con = ConnectionPool.getConnection();
+                previousAutoCommit = con.getAutoCommit();
+                con.setAutoCommit(false);
+            }
+            return con;
+        }
+
+        private void written(int rows) throws SQLException {
+            uncommitted += Math.max(1, rows);
+
+            // Long flushes are split so a single transaction never holds too many row locks
+            if (uncommitted >= commitSize) commitNow();
+        }
+
+        private void commitNow() throws SQLException {
+            if (con != null && uncommitted > 0) {
+                con.commit();
+                uncommitted = 0;
+            }
+
+            for (Runnable action : onCommit) {
+                action.run();
+            }
+            onCommit.clear();
+        }
+    }
+
+    protected static class MultiRowStatement {
+        private final String prefix;
+        private final String row;
+        private final String suffix;
+        private final Map<Integer, String> sqlByRows = new ConcurrentHashMap<>();
+
+        public MultiRowStatement(String prefix, String row, String suffix) {
+            this.prefix = prefix;
+            this.row = row;
+            this.suffix = suffix;
+        }
+
+        public String sql(int rows) {
+            return sqlByRows.computeIfAbsent(rows, k -> multiRow(prefix, row, k, suffix));
         }
     }
 
@@ -0,0 +1,82 @@
+package gameserver.custom.model;
+
+import gameserver.model.actor.Creature;
+import gameserver.model.actor.Player;
+import gameserver.model.actor.instance.Monster;
+import gameserver.skills.AbstractEffect;
+import gameserver.skills.L2Skill;
+
+import java.util.concurrent.TimeUnit;
+
+public final class CastSchedule {
+
+    private final SkillPlan plan;
+
+    // Earliest time each skill of the plan is worth trying again, only valid for the target it was computed for
+    // Only running effects defer a skill, the reuse delay is read from the player once the cast really started
+    private final long[] readyAt;
+    private final int[] readyFor;
+
+    public CastSchedule(SkillPlan plan) {
+        this.plan = plan;
+        this.readyAt = new long[plan.size()];
+        this.readyFor = new int[plan.size()];
+    }
+
+    public SkillPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return the index of the first skill of the plan able to start now, or -1 when nothing should be cast
+     */
+    public int next(Player player, Monster monster, boolean lowHp, long now) {
+        for (int i = 0; i < readyAt.length; i++) {
+            final SkillPlan.Role role = plan.getRole(i);
+            if (role.isOnMonster() && monster == null) continue;
+
+            final Creature target = role.isOnMonster() ? monster : player;
+            if (readyFor[i] == target.getObjectId() && now < readyAt[i]) continue;
+
+            final L2Skill skill = plan.getSkill(i);
+            switch (role) {
+                case HEAL -> {
+                    if (!lowHp) continue;
+                }
+                case SELF_BUFF, DEBUFF -> {
+                    final AbstractEffect effect = target.getFirstEffect(skill);
+                    if (effect != null) {
+                        defer(i, target, now + remainingMillis(effect));
+                        continue;
+                    }
+                }
+                case SPOIL -> {
+                    if (monster.getSpoilState().isSpoiled()) {
+                        defer(i, target, Long.MAX_VALUE);
+                        continue;
+                    }
+                }
+                case DAMAGE -> {
+                }
+            }
+
+            if (player.isSkillDisabled(skill) || player.getStatus().getMp() < skill.getMpConsume()) continue;
+
+            return i;
+        }
+        return -1;
+    }
+
+    public Creature getTarget(int index, Player player, Monster monster) {
+        return plan.getRole(index).isOnMonster() ? monster : player;
+    }
+
+    private void defer(int index, Creature target, long until) {
+        readyAt[index] = until;
+        readyFor[index] = target.getObjectId();
+    }
+
+    private static long remainingMillis(AbstractEffect effect) {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, effect.getPeriod() - effect.getTime()));
+    }
+}
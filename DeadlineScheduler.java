@@ -0,0 +1,22 @@
+package gameserver.custom.model;
+
+public interface DeadlineScheduler {
+
+    // Used until the hunter is registered, its deadlines are then never fired
+    DeadlineScheduler NONE = new DeadlineScheduler() {
+        @Override
+        public void scheduleDeadline(int id, HunterDeadline deadline, long delay, int stamp) {
+        }
+
+        @Override
+        public void cancelDeadline(int id, HunterDeadline deadline) {
+        }
+    };
+
+    /**
+     * The stamp is handed back with the deadline, so the hunter can tell a deadline it has since replaced.
+     */
+    void scheduleDeadline(int id, HunterDeadline deadline, long delay, int stamp);
+
+    void cancelDeadline(int id, HunterDeadline deadline);
+}
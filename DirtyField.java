@@ -0,0 +1,17 @@
+package gameserver.custom.manager;
+
+public enum DirtyField {
+
+    REMAINING_TIME,
+    PROFILE;
+
+    private final int mask = 1 << ordinal();
+
+    public int mask() {
+        return mask;
+    }
+
+    public boolean in(int fields) {
+        return (fields & mask) != 0;
+    }
+}
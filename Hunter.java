@@ -2,6 +2,7 @@ package gameserver.custom.model;
 
 import gameserver.model.actor.Player;
 import gameserver.model.actor.instance.Monster;
+import gameserver.model.location.Location;
 
 import java.util.Map;
 import java.util.function.Consumer;
@@ -15,6 +16,8 @@ public interface Hunter {
 
     void stop();
 
+    void pause();
+
     void resetEditing();
 
     void removeSkillFromSlot(int slot);
@@ -25,17 +28,23 @@ public interface Hunter {
 
     void addMinutes(int minutes);
 
-    void removeMinutes(int minutes);
+    int settle();
 
     void attackMonster(Monster monster);
 
-    void castSelfSkills();
+    boolean castSelfSkills();
 
     void followPartyLeader();
 
+    void onDeadline(HunterDeadline deadline, int stamp);
+
 
     // Getters
 
+    HunterState getState();
+
+    long getRoutineDelay();
+
     HunterType getTypeHunter();
 
     EditType getEditingType();
@@ -56,6 +65,8 @@ public interface Hunter {
 
     Player getPlayer();
 
+    Location getStartLocation();
+
     int getRadius();
 
     int getMpLimit();
@@ -64,6 +75,8 @@ public interface Hunter {
 
     int getRemainingMinutes();
 
+    int getRemainingSeconds();
+
     Monster findNearestMonster();
 
     // Setters
@@ -90,7 +103,9 @@ public interface Hunter {
 
     void setMinHp(int minHp);
 
-    void calculateRange();
+    void setDeadlineScheduler(DeadlineScheduler deadlines);
+
+    void compileSkillPlan();
 
     // Booleans
 
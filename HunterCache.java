@@ -0,0 +1,98 @@
+package gameserver.custom.dao;
+
+import java.util.Arrays;
+
+public class HunterCache {
+
+    private static final int MISSING = -1;
+
+    private final IntIntMap balances;
+
+    // Profiles are packed in one arena as a length byte followed by the encoded bytes
+    private IntIntMap profileOffsets;
+    private byte[] arena;
+    private int arenaSize;
+    private int wasted;
+
+    public HunterCache(int expected) {
+        this.balances = new IntIntMap(expected);
+        this.profileOffsets = new IntIntMap(expected);
+        this.arena = new byte[Math.max(1024, expected * 16)];
+    }
+
+    public synchronized boolean contains(int id) {
+        return balances.containsKey(id);
+    }
+
+    public synchronized int getBalance(int id) {
+        return balances.get(id, 0);
+    }
+
+    public synchronized byte[] getProfile(int id) {
+        final int offset = profileOffsets.get(id, MISSING);
+        if (offset == MISSING) return null;
+
+        final int length = arena[offset] & 0xFF;
+        return Arrays.copyOfRange(arena, offset + 1, offset + 1 + length);
+    }
+
+    public synchronized void putBalance(int id, int seconds) {
+        balances.put(id, seconds);
+    }
+
+    public synchronized void putProfile(int id, byte[] profile) {
+        if (profile == null || profile.length == 0 || profile.length > 0xFF) return;
+
+        final int previous = profileOffsets.get(id, MISSING);
+        if (previous != MISSING) {
+            final int length = arena[previous] & 0xFF;
+            if (length == profile.length) {
+                System.arraycopy(profile, 0, arena, previous + 1, length);
+                return;
+            }
+            wasted += length + 1;
+        }
+
+        if (arenaSize + profile.length + 1 > arena.length) grow(profile.length + 1);
+
+        arena[arenaSize] = (byte) profile.length;
+        System.arraycopy(profile, 0, arena, arenaSize + 1, profile.length);
+        profileOffsets.put(id, arenaSize);
+        arenaSize += profile.length + 1;
+    }
+
+    public synchronized int size() {
+        return balances.size();
+    }
+
+    public synchronized long memoryBytes() {
+        return balances.memoryBytes() + profileOffsets.memoryBytes() + arena.length;
+    }
+
+    private void grow(int needed) {
+        // Reclaim the space of replaced profiles before growing when it is worth it
+        if (wasted > arenaSize / 2) {
+            compact();
+            if (arenaSize + needed <= arena.length) return;
+        }
+        arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + needed));
+    }
+
+    private void compact() {
+        final byte[] compacted = new byte[arena.length];
+        final IntIntMap offsets = new IntIntMap(profileOffsets.size());
+        final int[] size = { 0 };
+
+        profileOffsets.forEach((id, offset) -> {
+            final int length = (arena[offset] & 0xFF) + 1;
+            System.arraycopy(arena, offset, compacted, size[0], length);
+            offsets.put(id, size[0]);
+            size[0] += length;
+        });
+
+        profileOffsets = offsets;
+        arena = compacted;
+        arenaSize = size[0];
+        wasted = 0;
+    }
+}
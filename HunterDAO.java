@@ -1,61 +1,184 @@
 package gameserver.custom.dao;
 
+import commons.logging.CLogger;
 import gameserver.custom.model.Hunter;
-import gameserver.custom.model.HunterImpl;
+import gameserver.custom.model.HunterProfileCodec;
 import gameserver.model.actor.Player;
 import config.Config;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class HunterDAO extends BaseDAO {
 
-    private static final String UPDATE = "UPDATE auto_farm SET remaining_minutes = ? WHERE player_id = ?";
-    private static final String SELECT = "SELECT remaining_minutes FROM auto_farm WHERE player_id = ?";
-    private static final String UPSERT = "INSERT INTO auto_farm (player_id, name, remaining_minutes) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name), remaining_minutes = VALUES(remaining_minutes);";
+    private static final CLogger LOGGER = new CLogger(HunterDAO.class.getName());
+
+    private static final String SELECT = "SELECT remaining_seconds, profile FROM auto_farm WHERE player_id = ?";
+    private static final String SELECT_ALL = "SELECT player_id, remaining_seconds, profile FROM auto_farm";
+    private static final String SELECT_IN = "SELECT player_id, remaining_seconds, profile FROM auto_farm WHERE player_id IN (%s)";
+    private static final String UPSERT = "INSERT INTO auto_farm (player_id, name, remaining_seconds) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name), remaining_seconds = VALUES(remaining_seconds);";
+
+    private static final MultiRowStatement UPSERT_ROWS = new MultiRowStatement(
+            "INSERT INTO auto_farm (player_id, name, remaining_seconds) VALUES ", "(?,?,?)",
+            " ON DUPLICATE KEY UPDATE name = VALUES(name), remaining_seconds = VALUES(remaining_seconds)");
+    private static final MultiRowStatement UPSERT_PROFILES = new MultiRowStatement(
+            "INSERT INTO auto_farm (player_id, name, remaining_seconds, profile) VALUES ", "(?,?,?,?)",
+            " ON DUPLICATE KEY UPDATE name = VALUES(name), remaining_seconds = VALUES(remaining_seconds), profile = VALUES(profile)");
+    private static final MultiRowStatement UPSERT_BALANCES = new MultiRowStatement(
+            "INSERT INTO auto_farm (player_id, remaining_seconds) VALUES ", "(?,?)",
+            " ON DUPLICATE KEY UPDATE remaining_seconds = VALUES(remaining_seconds)");
+
+    private volatile HunterCache cache;
+
+    public void preload() {
+        final long start = System.nanoTime();
+        final long usedBefore = usedMemory();
+
+        final HunterCache preloaded = new HunterCache(Config.AUTO_FARM_PRELOAD_EXPECTED);
+        final int rows = stream(SELECT_ALL, Config.AUTO_FARM_PRELOAD_FETCH_SIZE, rs -> {
+            final int id = rs.getInt("player_id");
+            preloaded.putBalance(id, rs.getInt("remaining_seconds"));
+            preloaded.putProfile(id, rs.getBytes("profile"));
+        });
+        this.cache = preloaded;
+
+        LOGGER.info("Preloaded {} auto farm rows in {} ms, cache uses {} KB ({} KB heap growth).",
+                rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), preloaded.memoryBytes() / 1024, Math.max(0, usedMemory() - usedBefore) / 1024);
+    }
+
+    public boolean isPreloaded() {
+        return cache != null;
+    }
 
     public Hunter load(Player player) {
+        final HunterCache preloaded = cache;
+        if (preloaded != null) return fromCache(preloaded, player);
+
         return query(
                 SELECT,
                 ps -> {
                     ps.setInt(1, player.getObjectId());
                     return ps.executeQuery();
                 },
-                rs -> rs.next() ? new HunterImpl(player, rs.getInt("remaining_minutes")) : null);
+                rs -> rs.next() ? HunterProfileCodec.decode(player, rs.getInt("remaining_seconds"), rs.getBytes("profile")) : null);
     }
 
-    public void upsert(Hunter hunter) {
-        execute(UPSERT, ps -> {
+    public Map<Integer, Hunter> loadAll(Collection<Player> players) {
+        if (players == null || players.isEmpty()) return Collections.emptyMap();
+
+        final HunterCache preloaded = cache;
+        if (preloaded != null) {
+            final Map<Integer, Hunter> hunters = new HashMap<>(players.size());
+            for (Player player : players) {
+                final Hunter hunter = fromCache(preloaded, player);
+                if (hunter != null) hunters.put(player.getObjectId(), hunter);
+            }
+            return hunters;
+        }
+
+        final Map<Integer, Player> byId = new HashMap<>(players.size());
+        for (Player player : players) {
+            byId.put(player.getObjectId(), player);
+        }
+
+        return query(
+                String.format(SELECT_IN, String.join(",", Collections.nCopies(byId.size(), "?"))),
+                ps -> {
+                    int index = 1;
+                    for (int id : byId.keySet()) {
+                        ps.setInt(index++, id);
+                    }
+                    return ps.executeQuery();
+                },
+                rs -> {
+                    final Map<Integer, Hunter> hunters = new HashMap<>(byId.size());
+                    while (rs.next()) {
+                        final Player player = byId.get(rs.getInt("player_id"));
+                        if (player != null) hunters.put(player.getObjectId(), HunterProfileCodec.decode(player, rs.getInt("remaining_seconds"), rs.getBytes("profile")));
+                    }
+                    return hunters;
+                });
+    }
+
+    public void upsert(UnitOfWork work, Hunter hunter, int seconds) {
+        work.executeUpdate(UPSERT, ps -> {
             ps.setInt(1, hunter.getId());
             ps.setString(2, hunter.getName());
-            ps.setInt(3, hunter.getRemainingMinutes());
-        });
-    }
+            ps.setInt(3, seconds);
+        }, 1);
 
-    public void updateBatch(Collection<Hunter> hunters) {
-        if (hunters == null || hunters.isEmpty()) return;
+        final HunterCache preloaded = cache;
+        if (preloaded != null) work.onCommit(() -> preloaded.putBalance(hunter.getId(), seconds));
+    }
 
-        executeBatch(UPDATE, ps -> {
-            int count = 0;
+    /**
+     * Writes the balance of each hunter, and its profile unless null. The arrays may be longer than the list of hunters.
+     */
+    public void updateBatch(UnitOfWork work, List<Hunter> hunters, int[] seconds, byte[][] profiles) {
+        if (hunters.isEmpty()) return;
 
-            for (Hunter hunter : hunters) {
-                if (hunter == null) continue;
+        // Rows whose profile did not change leave the profile column alone
+        final List<Integer> balanceRows = new ArrayList<>();
+        final List<Integer> profileRows = new ArrayList<>();
+        for (int i = 0; i < hunters.size(); i++) {
+            (profiles[i] == null ? balanceRows : profileRows).add(i);
+        }
 
-                ps.setInt(1, hunter.getRemainingMinutes());
-                ps.setInt(2, hunter.getId());
-                ps.addBatch();
-                count++;
+        executeMultiRow(work, UPSERT_ROWS, balanceRows, Config.AUTO_FARM_BATCH_SIZE, (ps, index, row) -> {
+            ps.setInt(index++, hunters.get(row).getId());
+            ps.setString(index++, hunters.get(row).getName());
+            ps.setInt(index++, seconds[row]);
+            return index;
+        });
+        executeMultiRow(work, UPSERT_PROFILES, profileRows, Config.AUTO_FARM_BATCH_SIZE, (ps, index, row) -> {
+            ps.setInt(index++, hunters.get(row).getId());
+            ps.setString(index++, hunters.get(row).getName());
+            ps.setInt(index++, seconds[row]);
+            ps.setBytes(index++, profiles[row]);
+            return index;
+        });
 
-                if (count % Config.AUTO_FARM_BATCH_SIZE == 0) {
-                    ps.executeBatch();
-                    ps.clearBatch();
-                }
-            }
+        final HunterCache preloaded = cache;
+        if (preloaded == null) return;
 
-            if (count % Config.AUTO_FARM_BATCH_SIZE != 0) {
-                ps.executeBatch();
-                ps.clearBatch();
+        work.onCommit(() -> {
+            for (int i = 0; i < hunters.size(); i++) {
+                preloaded.putBalance(hunters.get(i).getId(), seconds[i]);
+                preloaded.putProfile(hunters.get(i).getId(), profiles[i]);
             }
         });
     }
 
+    public void updateBalances(Map<Integer, Integer> balances) {
+        if (balances == null || balances.isEmpty()) return;
+
+        try (UnitOfWork work = beginWork(Integer.MAX_VALUE)) {
+            executeMultiRow(work, UPSERT_BALANCES, new ArrayList<>(balances.entrySet()), Config.AUTO_FARM_BATCH_SIZE, (ps, index, balance) -> {
+                ps.setInt(index++, balance.getKey());
+                ps.setInt(index++, balance.getValue());
+                return index;
+            });
+
+            final HunterCache preloaded = cache;
+            if (preloaded != null) work.onCommit(() -> balances.forEach(preloaded::putBalance));
+            work.commit();
+        }
+    }
+
+    private static Hunter fromCache(HunterCache preloaded, Player player) {
+        final int id = player.getObjectId();
+        if (!preloaded.contains(id)) return null;
+
+        return HunterProfileCodec.decode(player, preloaded.getBalance(id), preloaded.getProfile(id));
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 }
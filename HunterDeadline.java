@@ -0,0 +1,8 @@
+package gameserver.custom.model;
+
+public enum HunterDeadline {
+
+    EXPIRY,
+    SAME_TARGET,
+    LAST_HIT
+}
@@ -1,30 +1,35 @@
 package gameserver.custom.model;
 
 import commons.logging.CLogger;
+import gameserver.custom.manager.LineOfSightCache;
+import gameserver.custom.manager.MonsterScanCache;
+import gameserver.custom.manager.TargetClaims;
 import gameserver.enums.TeamType;
 import gameserver.enums.ZoneId;
-import gameserver.geoengine.GeoEngine;
 import gameserver.model.WorldObject;
 import gameserver.model.actor.Creature;
 import gameserver.model.actor.Player;
 import gameserver.model.actor.ai.type.PlayerAI;
-import gameserver.model.actor.instance.Chest;
 import gameserver.model.actor.instance.Monster;
 import gameserver.model.actor.status.PlayerStatus;
 import gameserver.model.group.Party;
 import gameserver.model.location.Location;
 import gameserver.skills.L2Skill;
+import config.Config;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class HunterImpl implements Hunter {
 
     protected static final CLogger LOGGER = new CLogger(HunterImpl.class.getName());
     public static final int MAX_SKILLS = 6;
+    public static final int MAX_RADIUS = 3000;
     private static final int SWEEPER_ID = 42;
+    private static final int NEAREST_CANDIDATES = 8;
 
     private final Player player;
     private volatile Map<Integer, Integer> skills;
@@ -33,7 +38,11 @@ public class HunterImpl implements Hunter {
     private int radius;
     private int minMp;
     private int minHp;
-    private final AtomicInteger remainingMinutes = new AtomicInteger();
+
+    // Remaining time is the balance minus the time spent active since activeSince
+    private final Object balanceLock = new Object();
+    private long balanceSeconds;
+    private long activeSince = -1;
 
     private boolean keepStartLocation;
     private boolean onlyRespectedTargets;
@@ -46,9 +55,14 @@ public class HunterImpl implements Hunter {
 
     private final HunterMovement hunterMovement;
     private int minRange;
+    private volatile CastSchedule castSchedule;
+    private HunterState state = HunterState.IDLE;
+    private int emptyScans;
+    private Monster[] candidates = new Monster[NEAREST_CANDIDATES];
+    private long[] candidateDistances = new long[NEAREST_CANDIDATES];
 
 
-    public HunterImpl(Player player, HunterType hunterType, int radius, boolean keepStartLocation, boolean onlyRespectedTargets, boolean followLeaderParty, boolean assistLeaderParty, boolean onlyTargetsSpoiled, int remainingMinutes, int minMp, int minHp) {
+    public HunterImpl(Player player, HunterType hunterType, int radius, boolean keepStartLocation, boolean onlyRespectedTargets, boolean followLeaderParty, boolean assistLeaderParty, boolean onlyTargetsSpoiled, int remainingSeconds, int minMp, int minHp) {
         this.player = player;
         this.hunterType = hunterType;
         this.radius = radius;
@@ -57,37 +71,55 @@ public class HunterImpl implements Hunter {
         this.followLeaderParty = followLeaderParty;
         this.assistLeaderParty = assistLeaderParty;
         this.onlyTargetsSpoiled = onlyTargetsSpoiled;
-        this.remainingMinutes.set(remainingMinutes);
+        this.balanceSeconds = remainingSeconds;
         this.minMp = minMp;
         this.minHp = minHp;
         this.skills = new HashMap<>(MAX_SKILLS);
         this.hunterMovement = new HunterMovement(this);
-        calculateRange();
+        compileSkillPlan();
     }
 
-    public HunterImpl(Player player, int remainingMinutes) {
-        this(player, player.isMageClass() ? HunterType.MAGE : HunterType.FIGHTER, 1200, true, true, false, false, false, remainingMinutes, 50, 50);
+    public HunterImpl(Player player, int remainingSeconds) {
+        this(player, player.isMageClass() ? HunterType.MAGE : HunterType.FIGHTER, 1200, true, true, false, false, false, remainingSeconds, 50, 50);
     }
 
 
     @Override
     public void executeRoutine() {
         if (hunterMovement.isInMovement()) {
+            state = HunterState.TRAVELLING;
             hunterMovement.backStartLocation();
             return;
         }
 
+        if (player.getCast().isCastingNow()) {
+            state = HunterState.CASTING;
+            return;
+        }
+
         if (followLeaderParty) followPartyLeader();
 
         final WorldObject target = player.getTarget();
-        if (target == null) castSelfSkills();
+        // One cast per routine, the target is picked on the next one
+        if (target == null && castSelfSkills()) {
+            state = HunterState.CASTING;
+            return;
+        }
 
         final Monster currentMonster = selectTargetMonster(target);
-        if (currentMonster == null) return;
+        if (currentMonster == null) {
+            state = canPark() && ++emptyScans >= Config.AUTO_FARM_IDLE_SCANS ? HunterState.PARKED : HunterState.IDLE;
+            return;
+        }
+        emptyScans = 0;
 
         if (target != currentMonster) player.setTarget(currentMonster);
-        if (onlyTargetsSpoiled && !currentMonster.getSpoilState().isSpoiled()) return;
+        if (onlyTargetsSpoiled && !currentMonster.getSpoilState().isSpoiled()) {
+            state = HunterState.IDLE;
+            return;
+        }
 
+        state = HunterState.FIGHTING;
         attackMonster(currentMonster);
     }
 
@@ -102,6 +134,12 @@ public class HunterImpl implements Hunter {
             return;
         }
         hunterMovement.setStartLocation(new Location(player.getPosition()));
+        hunterMovement.resetTargetStuck();
+        this.state = HunterState.IDLE;
+        this.emptyScans = 0;
+        synchronized (balanceLock) {
+            activeSince = System.nanoTime();
+        }
         this.active = true;
         player.setTeam(hunterType == HunterType.FIGHTER ? TeamType.BLUE : TeamType.RED);
         player.broadcastUserInfo();
@@ -110,12 +148,22 @@ public class HunterImpl implements Hunter {
 
     @Override
     public void stop() {
-        this.active = false;
+        pause();
         player.setTeam(TeamType.NONE);
         player.broadcastUserInfo();
         player.sendMessage("Your automatic farm system has been disabled.");
     }
 
+    @Override
+    public void pause() {
+        // Freezes the clock without touching the player, who may already be offline
+        synchronized (balanceLock) {
+            settle();
+            activeSince = -1;
+        }
+        this.active = false;
+    }
+
     @Override
     public void resetEditing() {
         setEditingType(null);
@@ -127,7 +175,7 @@ public class HunterImpl implements Hunter {
             final Integer skillId = skills.remove(slot);
             if (skillId != null && skillId == SWEEPER_ID) hasDeadTargetSkill = false;
         });
-        calculateRange();
+        compileSkillPlan();
     }
 
     @Override
@@ -139,7 +187,7 @@ public class HunterImpl implements Hunter {
             player.broadcastUserInfo();
         }
         player.sendMessage("Your class has been successfully changed.");
-        calculateRange();
+        compileSkillPlan();
     }
 
     @Override
@@ -153,12 +201,27 @@ public class HunterImpl implements Hunter {
 
     @Override
     public void addMinutes(int minutes) {
-        remainingMinutes.addAndGet(minutes);
+        synchronized (balanceLock) {
+            balanceSeconds += minutes * 60L;
+        }
     }
 
     @Override
-    public void removeMinutes(int minutes) {
-        this.remainingMinutes.updateAndGet(v -> Math.max(0, v - minutes));
+    public int settle() {
+        synchronized (balanceLock) {
+            if (activeSince < 0) return 0;
+
+            final long now = System.nanoTime();
+            final long elapsed = TimeUnit.NANOSECONDS.toSeconds(now - activeSince);
+            if (elapsed <= 0) return 0;
+
+            // Only whole seconds are charged, the remainder keeps running
+            activeSince += TimeUnit.SECONDS.toNanos(elapsed);
+
+            final long consumed = Math.min(elapsed, balanceSeconds);
+            balanceSeconds -= consumed;
+            return (int) consumed;
+        }
     }
 
     @Override
@@ -166,15 +229,20 @@ public class HunterImpl implements Hunter {
         if (monster == null) return;
 
         if (hunterMovement.isFarFromStartLocation() && keepStartLocation) {
+            state = HunterState.TRAVELLING;
             hunterMovement.backStartLocation();
             return;
         }
         if (hunterMovement.checkTargetIsStuck(monster)) {
+            state = HunterState.TRAVELLING;
             hunterMovement.resetTargetStuck();
             hunterMovement.backStartLocation();
             return;
         }
-        if (monster.isDead()) return;
+        if (monster.isDead()) {
+            state = HunterState.TARGET_DEAD;
+            return;
+        }
 
         final PlayerStatus status = player.getStatus();
         final PlayerAI ai = player.getAI();
@@ -183,64 +251,36 @@ public class HunterImpl implements Hunter {
         if (player.distance2D(monster) <= attackRange) {
             if (hunterType == HunterType.FIGHTER) ai.tryToAttack(monster);
 
-            if (skills.isEmpty()) return;
+            final CastSchedule schedule = castSchedule;
+            if (schedule.getPlan().isEmpty()) return;
 
             if (status.getMpRatio() <= (double) minMp / 100) {
                 player.sendMessage("You have reached your MP limit, use mana potion.");
                 return;
             }
 
-            final boolean lowHp = status.getHpRatio() < minHp / 100.0;
-
-            for (final int skillId : skills.values()) {
-                final L2Skill skill = player.getSkill(skillId);
-                if (skill == null) continue;
-
-                final Creature target = switch (skill.getSkillType()) {
-                    case SWEEP -> null;
-                    case HEAL -> lowHp ? player : null;
-                    case BUFF -> player.getFirstEffect(skill) == null ? player : null;
-                    case DEBUFF -> monster.getFirstEffect(skill) == null ? monster : null;
-                    case SPOIL -> !monster.getSpoilState().isSpoiled() ? monster : null;
-                    default -> monster;
-                };
-
-                if (target == null) continue;
+            castNext(ai, schedule, monster, status.getHpRatio() < minHp / 100.0);
+            return;
+        }
 
-                if (player.getTarget() != target) player.setTarget(target);
-                ai.tryToCast(target, skill);
-            }
+        // Checked again shortly, no event tells when the hunter gets in range
+        state = HunterState.APPROACHING;
+        if (hunterType == HunterType.FIGHTER) {
+            ai.tryToAttack(monster);
             return;
         }
         ai.tryToMoveTo(monster.getPosition(), null);
     }
 
     @Override
-    public void castSelfSkills() {
-        if (skills.isEmpty()) return;
+    public boolean castSelfSkills() {
+        final CastSchedule schedule = castSchedule;
+        if (schedule.getPlan().isEmpty()) return false;
 
-        final PlayerAI ai = player.getAI();
         final PlayerStatus status = player.getStatus();
+        if (status.getMpRatio() <= (double) minMp / 100) return false;
 
-        if (status.getMpRatio() <= (double) minMp / 100) return;
-
-        final boolean lowHp = status.getHpRatio() < minHp / 100.0;
-
-        for (final int skillId : skills.values()) {
-            final L2Skill skill = player.getSkill(skillId);
-            if (skill == null) continue;
-
-            final boolean shouldCast = switch (skill.getSkillType()) {
-                case HEAL -> lowHp;
-                case BUFF -> player.getFirstEffect(skill) == null;
-                default -> false;
-            };
-            if (!shouldCast) continue;
-
-            if (player.getTarget() != player) player.setTarget(player);
-
-            ai.tryToCast(player, skill);
-        }
+        return castNext(player.getAI(), schedule, null, status.getHpRatio() < minHp / 100.0);
     }
 
     @Override
@@ -252,20 +292,45 @@ public class HunterImpl implements Hunter {
     }
 
     @Override
-    public void calculateRange() {
-        int maxRange = player.getStatus().getPhysicalAttackRange();
+    public void onDeadline(HunterDeadline deadline, int stamp) {
+        if (deadline == HunterDeadline.SAME_TARGET || deadline == HunterDeadline.LAST_HIT) hunterMovement.markStuck(deadline, stamp);
+    }
+
+    @Override
+    public void compileSkillPlan() {
+        final SkillPlan plan = SkillPlan.compile(player, skills);
+        this.castSchedule = new CastSchedule(plan);
+        this.minRange = plan.getMaxCastRange();
+    }
 
-        for (int skillId : skills.values()) {
-            final L2Skill skill = player.getSkill(skillId);
-            if (skill == null) continue;
+    private boolean castNext(PlayerAI ai, CastSchedule schedule, Monster monster, boolean lowHp) {
+        // A single cast per routine, the one that can start right now
+        final long now = System.currentTimeMillis();
+        final int next = schedule.next(player, monster, lowHp, now);
+        if (next < 0) return false;
 
-            final int castRange = skill.getCastRange();
-            if (castRange > maxRange) {
-                maxRange = castRange;
-            }
-        }
+        final Creature target = schedule.getTarget(next, player, monster);
+        if (player.getTarget() != target) player.setTarget(target);
 
-        this.minRange = maxRange;
+        ai.tryToCast(target, schedule.getPlan().getSkill(next));
+        return true;
+    }
+
+    @Override
+    public HunterState getState() {
+        return state;
+    }
+
+    @Override
+    public long getRoutineDelay() {
+        return switch (state) {
+            case TARGET_DEAD -> 0;
+            case FIGHTING, CASTING -> Config.AUTO_FARM_FIGHT_DELAY;
+            case TRAVELLING -> Config.AUTO_FARM_TRAVEL_DELAY;
+            case APPROACHING -> Config.AUTO_FARM_APPROACH_DELAY;
+            case IDLE -> Config.AUTO_FARM_IDLE_DELAY;
+            case PARKED -> Config.AUTO_FARM_IDLE_BACKOFF;
+        };
     }
 
     @Override
@@ -326,6 +391,11 @@ public class HunterImpl implements Hunter {
         return player;
     }
 
+    @Override
+    public Location getStartLocation() {
+        return hunterMovement.getStartLocation();
+    }
+
     @Override
     public int getRadius() {
         return radius;
@@ -343,33 +413,59 @@ public class HunterImpl implements Hunter {
 
     @Override
     public int getRemainingMinutes() {
-        return remainingMinutes.get();
+        return getRemainingSeconds() / 60;
+    }
+
+    @Override
+    public int getRemainingSeconds() {
+        synchronized (balanceLock) {
+            if (activeSince < 0) return (int) balanceSeconds;
+
+            final long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - activeSince);
+            return (int) Math.max(0, balanceSeconds - elapsed);
+        }
     }
 
     @Override
     public Monster findNearestMonster() {
-        final GeoEngine geoEngine = GeoEngine.getInstance();
-        final Nearest nearest = new Nearest(null, radius);
+        final MonsterScanCache scanCache = MonsterScanCache.getInstance();
+        final LineOfSightCache losCache = LineOfSightCache.getInstance();
+        final TargetClaims claims = TargetClaims.getInstance();
 
-        player.forEachKnownTypeInRadius(Monster.class, radius, monster -> {
-            if (monster == null || monster.isDead() || monster.isRaidRelated() || monster instanceof Chest) return;
+        // Nearest monster claimed by another hunter, only used when nothing else is left
+        Monster claimed = null;
 
-            if (!geoEngine.canSeeTarget(player, monster)) return;
+        // Candidates come nearest first and line of sight, the expensive check, is only asked until one passes
+        while (true) {
+            final int count = scanCache.getNearest(player, radius, candidates, candidateDistances);
 
-            if (onlyRespectedTargets) {
-                final WorldObject monsterTarget = monster.getTarget();
-                if (monsterTarget != null && monsterTarget != player) return;
-            }
+            for (int i = 0; i < count; i++) {
+                final Monster monster = candidates[i];
+                candidates[i] = null;
+
+                if (monster.isDead() || player.distance2D(monster) >= radius) continue;
+
+                if (onlyRespectedTargets) {
+                    final WorldObject monsterTarget = monster.getTarget();
+                    if (monsterTarget != null && monsterTarget != player) continue;
+                }
+
+                if (claims.isClaimedByOther(player, monster)) {
+                    if (claimed == null) claimed = monster;
+                    continue;
+                }
+
+                if (!losCache.canSee(player, monster) || !claims.tryClaim(player, monster)) continue;
 
-            final double dist = player.distance2D(monster);
-            if (dist < nearest.radius) {
-                nearest.monster = monster;
-                nearest.radius = dist;
+                Arrays.fill(candidates, i + 1, count, null);
+                return monster;
             }
 
-        });
+            if (count < candidates.length) return claimed != null && losCache.canSee(player, claimed) ? claimed : null;
 
-        return nearest.monster;
+            candidates = new Monster[candidates.length * 4];
+            candidateDistances = new long[candidates.length];
+        }
     }
 
     @Override
@@ -382,7 +478,7 @@ public class HunterImpl implements Hunter {
         modifySkills(skills -> skills.put(slot, skillId));
 
         if (skillId == SWEEPER_ID) hasDeadTargetSkill = true;
-        calculateRange();
+        compileSkillPlan();
     }
 
     @Override
@@ -434,6 +530,11 @@ public class HunterImpl implements Hunter {
 
     }
 
+    @Override
+    public void setDeadlineScheduler(DeadlineScheduler deadlines) {
+        hunterMovement.setDeadlineScheduler(deadlines);
+    }
+
     @Override
     public boolean isHasDeadTargetSkill() {
         return hasDeadTargetSkill;
@@ -488,11 +589,15 @@ public class HunterImpl implements Hunter {
     }
 
     private Monster selectTargetMonster(WorldObject target) {
-        if (target instanceof Monster monster && GeoEngine.getInstance().canSeeTarget(player, monster)) {
-            if (!monster.isDead()) return monster;
+        if (target instanceof Monster monster && LineOfSightCache.getInstance().canSee(player, monster)) {
+            if (!monster.isDead()) {
+                // Keeps the lease alive while the monster is being fought
+                TargetClaims.getInstance().tryClaim(player, monster);
+                return monster;
+            }
 
             if (hasDeadTargetSkill && monster.getSpoilState().isSpoiled()) {
-                final L2Skill sweeper = player.getSkill(SWEEPER_ID);
+                final L2Skill sweeper = castSchedule.getPlan().getSweep();
                 if (sweeper != null) {
                     player.getAI().tryToCast(monster, sweeper);
                     return monster;
@@ -502,6 +607,10 @@ public class HunterImpl implements Hunter {
         return assistLeaderParty ? getTargetLeader() : findNearestMonster();
     }
 
+    private boolean canPark() {
+        return !assistLeaderParty && !followLeaderParty && getStartLocation() != null;
+    }
+
     private Monster getTargetLeader() {
         final Party party = player.getParty();
         if (party == null || party.isLeader(player)) return null;
@@ -512,14 +621,4 @@ public class HunterImpl implements Hunter {
 
         return monster;
     }
-
-    private static final class Nearest {
-        private Monster monster;
-        private double radius;
-
-        public Nearest(Monster monster, double radius) {
-            this.monster = monster;
-            this.radius = radius;
-        }
-    }
 }
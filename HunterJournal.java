@@ -0,0 +1,177 @@
+package gameserver.custom.dao;
+
+import commons.logging.CLogger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HunterJournal {
+
+    private static final CLogger LOGGER = new CLogger(HunterJournal.class.getName());
+
+    private static final int MAGIC = 0x41464A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 13;
+    private static final byte TYPE_BALANCE = 1;
+
+    private final Path[] paths;
+    private final FileChannel[] channels = new FileChannel[2];
+    private final MappedByteBuffer[] buffers = new MappedByteBuffer[2];
+    private final int capacity;
+
+    // Latest journaled balance of every hunter not yet written in the database
+    private final Map<Integer, Integer> pending = new HashMap<>();
+
+    private int active;
+    private long generation;
+    private boolean dirty;
+    private boolean full;
+
+    public HunterJournal(Path directory, int capacity) {
+        this.paths = new Path[] { directory.resolve("journal.0"), directory.resolve("journal.1") };
+        this.capacity = Math.max(HEADER_SIZE + RECORD_SIZE * 1024, capacity);
+    }
+
+    public synchronized Map<Integer, Integer> open() throws IOException {
+        Files.createDirectories(paths[0].getParent());
+
+        for (int i = 0; i < 2; i++) {
+            channels[i] = FileChannel.open(paths[i], StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffers[i] = channels[i].map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        final long generation0 = readGeneration(buffers[0]);
+        final long generation1 = readGeneration(buffers[1]);
+        final int latest = generation1 > generation0 ? 1 : 0;
+
+        generation = Math.max(generation0, generation1);
+        active = latest;
+
+        if (generation > 0) replay(buffers[latest], generation);
+
+        // Start a fresh generation holding only what still has to reach the database
+        rotate();
+        return new HashMap<>(pending);
+    }
+
+    public synchronized void append(int id, int seconds) {
+        if (buffers[active] == null) return;
+
+        final Integer previous = pending.put(id, seconds);
+        if (previous != null && previous == seconds) return;
+
+        final MappedByteBuffer buffer = buffers[active];
+        if (buffer.remaining() < RECORD_SIZE) {
+            rotate();
+            if (buffers[active].remaining() < RECORD_SIZE) {
+                if (!full) LOGGER.warn("Auto farm journal is full, balances are only kept in memory until the next flush.");
+                full = true;
+                return;
+            }
+        }
+        full = false;
+        write(buffers[active], id, seconds);
+        dirty = true;
+    }
+
+    public synchronized void markPersisted(int id, int seconds) {
+        final Integer journaled = pending.get(id);
+        if (journaled != null && journaled == seconds) pending.remove(id);
+    }
+
+    public synchronized void compactIfNeeded() {
+        if (buffers[active] == null) return;
+
+        // Rewrite once half of the file is used, most records are superseded or persisted by then
+        if (buffers[active].position() > capacity / 2) rotate();
+    }
+
+    public synchronized void sync() {
+        if (!dirty || buffers[active] == null) return;
+
+        buffers[active].force();
+        dirty = false;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void close() {
+        sync();
+        for (int i = 0; i < 2; i++) {
+            buffers[i] = null;
+            try {
+                if (channels[i] != null) channels[i].close();
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't close auto farm journal {}.", e, paths[i]);
+            }
+        }
+    }
+
+    private void rotate() {
+        final int next = 1 - active;
+        final MappedByteBuffer buffer = buffers[next];
+
+        generation++;
+
+        // Records first, the old header keeps this file losing against the active one until they are on disk
+        buffer.clear();
+        buffer.position(HEADER_SIZE);
+        for (Map.Entry<Integer, Integer> entry : pending.entrySet()) {
+            if (buffer.remaining() < RECORD_SIZE) break;
+            write(buffer, entry.getKey(), entry.getValue());
+        }
+        if (buffer.remaining() > 0) buffer.put(buffer.position(), (byte) 0);
+        buffer.force();
+
+        // The header alone then makes the new generation the latest one
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, generation);
+        buffer.force();
+
+        // Only switch once the new generation is safely on disk
+        active = next;
+        dirty = false;
+    }
+
+    private void write(MappedByteBuffer buffer, int id, int seconds) {
+        buffer.put(TYPE_BALANCE);
+        buffer.putInt(id);
+        buffer.putInt(seconds);
+        buffer.putInt(checksum(id, seconds, generation));
+    }
+
+    private void replay(MappedByteBuffer buffer, long generation) {
+        buffer.position(HEADER_SIZE);
+
+        while (buffer.remaining() >= RECORD_SIZE) {
+            final byte type = buffer.get();
+            if (type != TYPE_BALANCE) break;
+
+            final int id = buffer.getInt();
+            final int seconds = buffer.getInt();
+            if (buffer.getInt() != checksum(id, seconds, generation)) break;
+
+            pending.put(id, seconds);
+        }
+    }
+
+    private static long readGeneration(MappedByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return 0;
+        return buffer.getLong(8);
+    }
+
+    private static int checksum(int id, int seconds, long generation) {
+        // Mixing the generation in invalidates the leftovers of a previous use of the file
+        return (id * 0x9E3779B1) ^ (seconds * 0x85EBCA6B) ^ (int) generation ^ (int) (generation >>> 32) ^ MAGIC;
+    }
+}
@@ -12,10 +12,15 @@ public class HunterMovement {
     protected boolean isMoving;
     private Location startLocation;
 
-    // Stuck
-    private long targetLastHitTime;
-    private long targetLockedAt;
+    // Stuck, the deadlines live in the manager timing wheel
+    private DeadlineScheduler deadlines = DeadlineScheduler.NONE;
     private Monster lockedTarget;
+    private boolean targetHit;
+    private boolean stuck;
+
+    // Stamp of the deadline currently scheduled of each kind, a fired deadline with another stamp is stale
+    private final int[] stamps = new int[HunterDeadline.values().length];
+    private int nextStamp;
 
 
     public HunterMovement(Hunter hunter) {
@@ -34,6 +39,10 @@ public class HunterMovement {
         return hunter.getPlayer().isIn2DRadius(startLocation, Config.AUTO_FARM_MIN_RADIUS_DISABLE);
     }
 
+    public Location getStartLocation() {
+        return startLocation;
+    }
+
     public void setStartLocation(Location startLocation) {
         this.startLocation = startLocation;
     }
@@ -61,25 +70,54 @@ public class HunterMovement {
     public boolean checkTargetIsStuck(Monster target) {
         if (target == null) return false;
 
-        final long now = System.currentTimeMillis();
         if (lockedTarget == null || lockedTarget != target) {
             this.lockedTarget = target;
-            this.targetLockedAt = now;
-            this.targetLastHitTime = now;
+            this.targetHit = false;
+            this.stuck = false;
+            schedule(HunterDeadline.SAME_TARGET, Config.AUTO_FARM_TOLERABLE_SAME_TARGET);
+            schedule(HunterDeadline.LAST_HIT, Config.AUTO_FARM_TOLERABLE_DELAY_HIT);
             return false;
+        }
 
+        // The last hit deadline only runs while the target is untouched
+        final boolean hit = target.getStatus().getHpRatio() != 1;
+        if (hit != targetHit) {
+            this.targetHit = hit;
+            if (hit) {
+                cancel(HunterDeadline.LAST_HIT);
+            } else {
+                schedule(HunterDeadline.LAST_HIT, Config.AUTO_FARM_TOLERABLE_DELAY_HIT);
+            }
         }
-        if (target.getStatus().getHpRatio() != 1) this.targetLastHitTime = now;
+        return stuck;
+    }
 
-        final long timeLastHit = now - this.targetLastHitTime;
-        final long timeLocked = now - this.targetLockedAt;
+    public void markStuck(HunterDeadline deadline, int stamp) {
+        if (stamps[deadline.ordinal()] == stamp) this.stuck = true;
+    }
 
-        return timeLastHit > Config.AUTO_FARM_TOLERABLE_DELAY_HIT || timeLocked > Config.AUTO_FARM_TOLERABLE_SAME_TARGET;
+    public void setDeadlineScheduler(DeadlineScheduler deadlines) {
+        this.deadlines = deadlines;
     }
 
     public void resetTargetStuck() {
         this.lockedTarget = null;
-        this.targetLockedAt = 0L;
-        this.targetLastHitTime = 0L;
+        this.targetHit = false;
+        this.stuck = false;
+
+        cancel(HunterDeadline.SAME_TARGET);
+        cancel(HunterDeadline.LAST_HIT);
+    }
+
+    private void schedule(HunterDeadline deadline, long delay) {
+        final int stamp = ++nextStamp;
+        stamps[deadline.ordinal()] = stamp;
+        deadlines.scheduleDeadline(hunter.getId(), deadline, delay, stamp);
+    }
+
+    private void cancel(HunterDeadline deadline) {
+        // A deadline already fired but still queued for the shard no longer matches
+        stamps[deadline.ordinal()] = ++nextStamp;
+        deadlines.cancelDeadline(hunter.getId(), deadline);
     }
 }
@@ -0,0 +1,110 @@
+package gameserver.custom.model;
+
+import commons.logging.CLogger;
+import gameserver.model.actor.Player;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+public final class HunterProfileCodec {
+
+    private static final CLogger LOGGER = new CLogger(HunterProfileCodec.class.getName());
+
+    private static final byte VERSION = 1;
+
+    private static final int KEEP_START_LOCATION = 1;
+    private static final int ONLY_RESPECTED_TARGETS = 1 << 1;
+    private static final int FOLLOW_LEADER_PARTY = 1 << 2;
+    private static final int ASSIST_LEADER_PARTY = 1 << 3;
+    private static final int ONLY_TARGETS_SPOILED = 1 << 4;
+
+    // version, type, radius, hp, mp, flags, skill count, then slot and skill id per skill
+    private static final int HEADER_SIZE = 8;
+    private static final int SKILL_SIZE = 3;
+
+    private HunterProfileCodec() {
+    }
+
+    public static byte[] encode(Hunter hunter) {
+        final Map<Integer, Integer> skills = hunter.getSkills();
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + SKILL_SIZE * HunterImpl.MAX_SKILLS);
+
+        buffer.put(VERSION);
+        buffer.put((byte) hunter.getTypeHunter().ordinal());
+        buffer.putShort((short) hunter.getRadius());
+        buffer.put((byte) hunter.getHpLimit());
+        buffer.put((byte) hunter.getMpLimit());
+        buffer.put((byte) flags(hunter));
+
+        final int countPosition = buffer.position();
+        buffer.put((byte) 0);
+
+        // Slots are written in order so that an unchanged profile always encodes to the same bytes
+        int count = 0;
+        for (int slot = 0; slot < HunterImpl.MAX_SKILLS; slot++) {
+            final Integer skillId = skills.get(slot);
+            if (skillId == null) continue;
+
+            buffer.put((byte) slot);
+            buffer.putShort((short) (int) skillId);
+            count++;
+        }
+        buffer.put(countPosition, (byte) count);
+
+        final byte[] encoded = new byte[buffer.position()];
+        buffer.flip().get(encoded);
+        return encoded;
+    }
+
+    public static Hunter decode(Player player, int remainingSeconds, byte[] profile) {
+        if (profile == null || profile.length == 0) return new HunterImpl(player, remainingSeconds);
+
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(profile);
+
+            final byte version = buffer.get();
+            if (version != VERSION) {
+                LOGGER.warn("Unknown auto farm profile version {} for {}, using the default profile.", version, player.getName());
+                return new HunterImpl(player, remainingSeconds);
+            }
+
+            final HunterType[] types = HunterType.values();
+            final HunterType type = types[Math.floorMod(buffer.get(), types.length)];
+            final int radius = Math.min(HunterImpl.MAX_RADIUS, buffer.getShort() & 0xFFFF);
+            final int minHp = buffer.get() & 0xFF;
+            final int minMp = buffer.get() & 0xFF;
+            final int flags = buffer.get() & 0xFF;
+
+            final Hunter hunter = new HunterImpl(player, type, radius,
+                    (flags & KEEP_START_LOCATION) != 0,
+                    (flags & ONLY_RESPECTED_TARGETS) != 0,
+                    (flags & FOLLOW_LEADER_PARTY) != 0,
+                    (flags & ASSIST_LEADER_PARTY) != 0,
+                    (flags & ONLY_TARGETS_SPOILED) != 0,
+                    remainingSeconds, minMp, minHp);
+
+            final int count = buffer.get() & 0xFF;
+            for (int i = 0; i < count; i++) {
+                final int slot = buffer.get() & 0xFF;
+                final int skillId = buffer.getShort() & 0xFFFF;
+                if (slot < HunterImpl.MAX_SKILLS) hunter.assignSkillToSlot(slot, skillId);
+            }
+            return hunter;
+
+        } catch (BufferUnderflowException e) {
+            LOGGER.warn("Truncated auto farm profile for {}, using the default profile.", player.getName());
+            return new HunterImpl(player, remainingSeconds);
+        }
+    }
+
+    private static int flags(Hunter hunter) {
+        int flags = 0;
+        if (hunter.isKeepStartLocation()) flags |= KEEP_START_LOCATION;
+        if (hunter.isOnlyRespectedTargets()) flags |= ONLY_RESPECTED_TARGETS;
+        if (hunter.isFollowLeaderParty()) flags |= FOLLOW_LEADER_PARTY;
+        if (hunter.isAssistLeaderParty()) flags |= ASSIST_LEADER_PARTY;
+        if (hunter.isOnlyTargetsSpoiled()) flags |= ONLY_TARGETS_SPOILED;
+        return flags;
+    }
+}
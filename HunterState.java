@@ -0,0 +1,12 @@
+package gameserver.custom.model;
+
+public enum HunterState {
+
+    IDLE,
+    TRAVELLING,
+    APPROACHING,
+    FIGHTING,
+    CASTING,
+    TARGET_DEAD,
+    PARKED
+}
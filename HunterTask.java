@@ -0,0 +1,26 @@
+package gameserver.custom.manager;
+
+import gameserver.custom.model.Hunter;
+
+final class HunterTask {
+
+    final Hunter hunter;
+    // Bumped whenever the task is queued again, older bucket entries are then dropped when met
+    int generation;
+    boolean due;
+    boolean removed;
+    long nextDueAt;
+    int deferrals;
+    long region;
+    int watchedTarget;
+    boolean parked;
+    long parkedRegion;
+
+    HunterTask(Hunter hunter) {
+        this.hunter = hunter;
+    }
+
+    int getId() {
+        return hunter.getId();
+    }
+}
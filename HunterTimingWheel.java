@@ -0,0 +1,157 @@
+package gameserver.custom.manager;
+
+import gameserver.custom.model.HunterDeadline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HunterTimingWheel implements Runnable {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    @FunctionalInterface
+    public interface DeadlineListener {
+        void onDeadline(int hunterId, HunterDeadline deadline, int stamp);
+    }
+
+    private final long tickMillis;
+    private final long startedAt;
+    private final DeadlineListener listener;
+
+    private final List<Timeout>[][] wheels;
+    private final Map<Long, Timeout> timeouts = new HashMap<>();
+    private final List<Timeout> expired = new ArrayList<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HunterTimingWheel(long tickMillis, DeadlineListener listener) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.startedAt = System.currentTimeMillis();
+        this.listener = listener;
+        this.wheels = new List[LEVELS][WHEEL_SIZE];
+
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new ArrayList<>();
+            }
+        }
+    }
+
+    public synchronized void schedule(int hunterId, HunterDeadline deadline, long delayMillis, int stamp) {
+        cancel(hunterId, deadline);
+
+        final long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        final Timeout timeout = new Timeout(hunterId, deadline, stamp, currentTick + ticks);
+
+        timeouts.put(key(hunterId, deadline), timeout);
+        place(timeout);
+    }
+
+    public synchronized void cancel(int hunterId, HunterDeadline deadline) {
+        final Timeout timeout = timeouts.remove(key(hunterId, deadline));
+        if (timeout != null) timeout.cancelled = true;
+    }
+
+    public synchronized void cancelAll(int hunterId) {
+        for (HunterDeadline deadline : HunterDeadline.values()) {
+            cancel(hunterId, deadline);
+        }
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    @Override
+    public void run() {
+        final List<Timeout> fired;
+
+        synchronized (this) {
+            final long target = (System.currentTimeMillis() - startedAt) / tickMillis;
+            while (currentTick < target) {
+                currentTick++;
+                advance();
+            }
+            if (expired.isEmpty()) return;
+
+            fired = new ArrayList<>(expired);
+            expired.clear();
+        }
+
+        // Listeners run outside the lock, they are free to schedule again
+        for (Timeout timeout : fired) {
+            listener.onDeadline(timeout.hunterId, timeout.deadline, timeout.stamp);
+        }
+    }
+
+    private void advance() {
+        // Move the timeouts of the upper levels down once their period starts
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) break;
+
+            final int slot = (int) ((currentTick >> (WHEEL_BITS * level)) & WHEEL_MASK);
+            final List<Timeout> cascading = wheels[level][slot];
+            wheels[level][slot] = new ArrayList<>();
+
+            for (Timeout timeout : cascading) {
+                if (!timeout.cancelled) place(timeout);
+            }
+        }
+
+        final int slot = (int) (currentTick & WHEEL_MASK);
+        final List<Timeout> bucket = wheels[0][slot];
+        if (bucket.isEmpty()) return;
+
+        wheels[0][slot] = new ArrayList<>();
+        for (Timeout timeout : bucket) {
+            if (timeout.cancelled) continue;
+
+            if (timeout.tick > currentTick) {
+                place(timeout);
+                continue;
+            }
+            timeouts.remove(key(timeout.hunterId, timeout.deadline), timeout);
+            expired.add(timeout);
+        }
+    }
+
+    private void place(Timeout timeout) {
+        final long remaining = timeout.tick - currentTick;
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (remaining < 1L << (WHEEL_BITS * (level + 1))) {
+                final int slot = (int) ((Math.max(timeout.tick, currentTick) >> (WHEEL_BITS * level)) & WHEEL_MASK);
+                wheels[level][slot].add(timeout);
+                return;
+            }
+        }
+
+        // Beyond the last level, parked on the slot cascaded last and placed again from there
+        final int shift = WHEEL_BITS * (LEVELS - 1);
+        wheels[LEVELS - 1][(int) (((currentTick >> shift) - 1) & WHEEL_MASK)].add(timeout);
+    }
+
+    private static long key(int hunterId, HunterDeadline deadline) {
+        return ((long) hunterId << 8) | deadline.ordinal();
+    }
+
+    private static final class Timeout {
+        private final int hunterId;
+        private final HunterDeadline deadline;
+        private final int stamp;
+        private final long tick;
+        private boolean cancelled;
+
+        private Timeout(int hunterId, HunterDeadline deadline, int stamp, long tick) {
+            this.hunterId = hunterId;
+            this.deadline = deadline;
+            this.stamp = stamp;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package gameserver.custom.manager;
+
+import gameserver.custom.model.Hunter;
+import gameserver.custom.model.HunterProfileCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+public class HunterWriteBehind {
+
+    private final Map<Integer, Dirty> dirty = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> persistedSeconds = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> persistedProfiles = new ConcurrentHashMap<>();
+
+    // Drained but not yet confirmed by the writer
+    private final Map<Integer, Hunter> inFlight = new ConcurrentHashMap<>();
+
+    public void markDirty(Hunter hunter, DirtyField field) {
+        markDirty(hunter, field.mask(), true);
+    }
+
+    private void markDirty(Hunter hunter, int fields, boolean latest) {
+        dirty.compute(hunter.getId(), (id, entry) -> {
+            if (entry == null) return new Dirty(hunter, fields);
+
+            // A hunter loaded again after a logout replaces the instance of the previous session
+            if (latest) entry.hunter = hunter;
+            entry.fields |= fields;
+            return entry;
+        });
+    }
+
+    public void markLoaded(Hunter hunter) {
+        persistedSeconds.put(hunter.getId(), hunter.getRemainingSeconds());
+        persistedProfiles.put(hunter.getId(), HunterProfileCodec.encode(hunter));
+    }
+
+    public void markPersisted(Hunter hunter, int seconds) {
+        persistedSeconds.put(hunter.getId(), seconds);
+    }
+
+    public void markPersisted(Batch batch) {
+        for (int i = 0; i < batch.hunters.size(); i++) {
+            final int id = batch.hunters.get(i).getId();
+            inFlight.remove(id, batch.hunters.get(i));
+            persistedSeconds.put(id, batch.seconds[i]);
+            if (batch.profiles[i] != null) persistedProfiles.put(id, batch.profiles[i]);
+        }
+    }
+
+    public void requeue(Batch batch) {
+        for (int i = 0; i < batch.hunters.size(); i++) {
+            final Hunter hunter = batch.hunters.get(i);
+            inFlight.remove(hunter.getId(), hunter);
+
+            // A failed write must not take the place of a newer session already marked dirty
+            final int fields = DirtyField.REMAINING_TIME.mask() | (batch.profiles[i] != null ? DirtyField.PROFILE.mask() : 0);
+            markDirty(hunter, fields, false);
+        }
+    }
+
+    public boolean isDirty(int id) {
+        return dirty.containsKey(id);
+    }
+
+    /**
+     * @return the hunter whose latest values are not in the database yet, or null when the database is up to date
+     */
+    public Hunter getUnpersisted(int id) {
+        final Dirty entry = dirty.get(id);
+        return entry != null ? entry.hunter : inFlight.get(id);
+    }
+
+    public void forget(int id) {
+        persistedSeconds.remove(id);
+        persistedProfiles.remove(id);
+    }
+
+    public int size() {
+        return dirty.size();
+    }
+
+    public Batch drain() {
+        return drain(0, 1);
+    }
+
+    public Batch drain(int slice, int slices) {
+        return drain(id -> Math.floorMod(id, slices) == slice, Math.max(1, dirty.size() / slices));
+    }
+
+    public Batch drainHunter(int hunterId) {
+        return dirty.containsKey(hunterId) ? drain(id -> id == hunterId, 1) : Batch.EMPTY;
+    }
+
+    private Batch drain(IntPredicate selected, int expected) {
+        if (dirty.isEmpty()) return Batch.EMPTY;
+
+        final List<Hunter> hunters = new ArrayList<>();
+        int[] seconds = new int[expected];
+        byte[][] profiles = new byte[seconds.length][];
+
+        for (Integer id : dirty.keySet()) {
+            if (!selected.test(id)) continue;
+
+            final Dirty entry = dirty.remove(id);
+            if (entry == null) continue;
+
+            // Profiles are only rewritten when their encoding differs from the stored one
+            byte[] profile = null;
+            if (DirtyField.PROFILE.in(entry.fields)) {
+                final byte[] encoded = HunterProfileCodec.encode(entry.hunter);
+                if (!Arrays.equals(encoded, persistedProfiles.get(id))) profile = encoded;
+            }
+
+            final int remaining = entry.hunter.getRemainingSeconds();
+            if (profile == null && Integer.valueOf(remaining).equals(persistedSeconds.get(id))) continue;
+            if (hunters.size() == seconds.length) {
+                seconds = Arrays.copyOf(seconds, seconds.length * 2 + 1);
+                profiles = Arrays.copyOf(profiles, seconds.length);
+            }
+
+            seconds[hunters.size()] = remaining;
+            profiles[hunters.size()] = profile;
+            hunters.add(entry.hunter);
+            inFlight.put(id, entry.hunter);
+        }
+        return hunters.isEmpty() ? Batch.EMPTY : new Batch(hunters, seconds, profiles);
+    }
+
+    public static final class Batch {
+
+        private static final Batch EMPTY = new Batch(Collections.emptyList(), new int[0], new byte[0][]);
+
+        private final List<Hunter> hunters;
+        private final int[] seconds;
+        private final byte[][] profiles;
+
+        private Batch(List<Hunter> hunters, int[] seconds, byte[][] profiles) {
+            this.hunters = hunters;
+            this.seconds = seconds;
+            this.profiles = profiles;
+        }
+
+        public List<Hunter> getHunters() {
+            return hunters;
+        }
+
+        public int getSeconds(int index) {
+            return seconds[index];
+        }
+
+        public int[] getSeconds() {
+            return seconds;
+        }
+
+        public byte[][] getProfiles() {
+            return profiles;
+        }
+
+        public boolean isEmpty() {
+            return hunters.isEmpty();
+        }
+    }
+
+    private static final class Dirty {
+        private Hunter hunter;
+        private int fields;
+
+        private Dirty(Hunter hunter, int fields) {
+            this.hunter = hunter;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package gameserver.custom.dao;
+
+import commons.logging.CLogger;
+import gameserver.custom.util.TickStats;
+import config.Config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HunterWriter {
+
+    private static final CLogger LOGGER = new CLogger(HunterWriter.class.getName());
+    private static final Runnable NOTHING = () -> {};
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST
+    }
+
+    private final BlockingQueue<WriteTask> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final TickStats writeLatency = new TickStats();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public HunterWriter() {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, Config.AUTO_FARM_WRITER_QUEUE_SIZE));
+        this.overflowPolicy = parsePolicy(Config.AUTO_FARM_WRITER_OVERFLOW);
+        this.thread = new Thread(this::processQueue, "AutoFarmWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void submit(String name, Runnable write) {
+        submit(name, write, NOTHING, NOTHING);
+    }
+
+    public void submit(String name, Runnable write, Runnable onSuccess, Runnable onFailure) {
+        final WriteTask task = new WriteTask(name, write, onSuccess, onFailure);
+
+        if (!running) {
+            execute(task);
+            return;
+        }
+        if (queue.offer(task)) return;
+
+        // Writes hold absolute values, the queue is the only place they may run from or an older one could land last
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        queue.put(task);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(task)) {
+                    final WriteTask oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped.incrementAndGet();
+                        oldest.onFailure.run();
+                    }
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        WriteTask task;
+        while ((task = queue.poll()) != null) {
+            execute(task);
+        }
+    }
+
+    private void processQueue() {
+        while (running) {
+            try {
+                final WriteTask task = queue.poll(1, TimeUnit.SECONDS);
+                if (task != null) execute(task);
+            } catch (InterruptedException e) {
+                if (!running) return;
+            }
+        }
+    }
+
+    private void execute(WriteTask task) {
+        for (int attempt = 0; ; attempt++) {
+            final long start = System.nanoTime();
+            try {
+                task.write.run();
+                writeLatency.record(System.nanoTime() - start);
+                task.onSuccess.run();
+                return;
+
+            } catch (BaseDAO.DataAccessException e) {
+                if (attempt >= Config.AUTO_FARM_WRITER_RETRIES || !backoff(attempt)) {
+                    LOGGER.warn("Auto farm write '{}' failed after {} attempt(s).", e, task.name, attempt + 1);
+                    fail(task);
+                    return;
+                }
+                retried.incrementAndGet();
+
+            } catch (RuntimeException e) {
+                LOGGER.error("Auto farm write '{}' failed.", e, task.name);
+                fail(task);
+                return;
+            }
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        final long delay = Math.min(30_000L, (long) Config.AUTO_FARM_WRITER_RETRY_DELAY << Math.min(attempt, 10));
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            // Shutting down, the caller drains what is left
+            return false;
+        }
+    }
+
+    private void fail(WriteTask task) {
+        failed.incrementAndGet();
+        task.onFailure.run();
+    }
+
+    private static OverflowPolicy parsePolicy(String value) {
+        try {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOGGER.warn("Unknown auto farm writer overflow policy '{}', using BLOCK.", value);
+            return OverflowPolicy.BLOCK;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public TickStats getWriteLatency() {
+        return writeLatency;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getRetriedCount() {
+        return retried.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private record WriteTask(String name, Runnable write, Runnable onSuccess, Runnable onFailure) {
+    }
+}
@@ -0,0 +1,122 @@
+package gameserver.custom.dao;
+
+public final class IntIntMap {
+
+    @FunctionalInterface
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    private static final int FREE = 0;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int threshold;
+
+    // The free marker can't be stored in the tables, it is kept aside
+    private boolean hasFreeKey;
+    private int freeValue;
+
+    public IntIntMap() {
+        this(1024);
+    }
+
+    public IntIntMap(int expected) {
+        final int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public int get(int key, int missing) {
+        if (key == FREE) return hasFreeKey ? freeValue : missing;
+
+        final int mask = keys.length - 1;
+        for (int index = mix(key) & mask; ; index = (index + 1) & mask) {
+            final int current = keys[index];
+            if (current == key) return values[index];
+            if (current == FREE) return missing;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE) return hasFreeKey;
+
+        final int mask = keys.length - 1;
+        for (int index = mix(key) & mask; ; index = (index + 1) & mask) {
+            final int current = keys[index];
+            if (current == key) return true;
+            if (current == FREE) return false;
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) size++;
+            hasFreeKey = true;
+            freeValue = value;
+            return;
+        }
+
+        final int mask = keys.length - 1;
+        for (int index = mix(key) & mask; ; index = (index + 1) & mask) {
+            final int current = keys[index];
+            if (current == key) {
+                values[index] = value;
+                return;
+            }
+            if (current == FREE) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > threshold) rehash(keys.length << 1);
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(IntIntConsumer consumer) {
+        if (hasFreeKey) consumer.accept(FREE, freeValue);
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    public long memoryBytes() {
+        return (long) keys.length * Integer.BYTES * 2;
+    }
+
+    private void rehash(int capacity) {
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+
+        keys = new int[capacity];
+        values = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            final int key = oldKeys[i];
+            if (key == FREE) continue;
+
+            int index = mix(key) & mask;
+            while (keys[index] != FREE) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = oldValues[i];
+        }
+    }
+
+    private static int mix(int key) {
+        // Object ids are sequential, spread them before masking
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
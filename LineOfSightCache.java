@@ -0,0 +1,60 @@
+package gameserver.custom.manager;
+
+import gameserver.geoengine.GeoEngine;
+import gameserver.model.actor.Player;
+import gameserver.model.actor.instance.Monster;
+import config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LineOfSightCache {
+
+    private static final int CELL_SHIFT = 6;
+
+    private final Map<Long, Verdict> verdicts = new ConcurrentHashMap<>();
+
+    public boolean canSee(Player player, Monster monster) {
+        final long now = System.currentTimeMillis();
+        final long key = key(player.getX() >> CELL_SHIFT, player.getY() >> CELL_SHIFT, monster.getObjectId());
+        final int monsterCell = cell(monster.getX() >> CELL_SHIFT, monster.getY() >> CELL_SHIFT);
+
+        // A verdict is reused only while the monster stays in the cell it was computed for
+        final Verdict verdict = verdicts.get(key);
+        if (verdict != null && verdict.expiresAt > now && verdict.monsterCell == monsterCell) return verdict.visible;
+
+        final boolean visible = GeoEngine.getInstance().canSeeTarget(player, monster);
+        verdicts.put(key, new Verdict(visible, monsterCell, now + Config.AUTO_FARM_LOS_CACHE_TTL));
+        return visible;
+    }
+
+    public void purge() {
+        final long now = System.currentTimeMillis();
+        verdicts.values().removeIf(verdict -> verdict.expiresAt <= now);
+    }
+
+    public int size() {
+        return verdicts.size();
+    }
+
+    private static long key(int cellX, int cellY, int monsterId) {
+        return ((long) cell(cellX, cellY) << 32) | (monsterId & 0xFFFFFFFFL);
+    }
+
+    private static int cell(int cellX, int cellY) {
+        return (cellX << 16) | (cellY & 0xFFFF);
+    }
+
+    private record Verdict(boolean visible, int monsterCell, long expiresAt) {
+    }
+
+    public static LineOfSightCache getInstance()
+    {
+        return LineOfSightCache.SingletonHolder.INSTANCE;
+    }
+
+    private static class SingletonHolder
+    {
+        protected static final LineOfSightCache INSTANCE = new LineOfSightCache();
+    }
+}
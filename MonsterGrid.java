@@ -0,0 +1,128 @@
+package gameserver.custom.manager;
+
+import gameserver.model.actor.instance.Monster;
+
+public final class MonsterGrid {
+
+    private static final int CELL_SIZE = 256;
+
+    private final Monster[] monsters;
+    private final int[] xs;
+    private final int[] ys;
+    private final int minCellX;
+    private final int minCellY;
+    private final int columns;
+    private final int rows;
+
+    // Monsters sorted by cell, cellStart[cell] .. cellStart[cell + 1] indexes into order
+    private final int[] cellStart;
+    private final int[] order;
+
+    public MonsterGrid(Monster[] monsters) {
+        this.monsters = monsters;
+        this.xs = new int[monsters.length];
+        this.ys = new int[monsters.length];
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < monsters.length; i++) {
+            xs[i] = monsters[i].getX();
+            ys[i] = monsters[i].getY();
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        if (monsters.length == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        this.minCellX = Math.floorDiv(minX, CELL_SIZE);
+        this.minCellY = Math.floorDiv(minY, CELL_SIZE);
+        this.columns = Math.floorDiv(maxX, CELL_SIZE) - minCellX + 1;
+        this.rows = Math.floorDiv(maxY, CELL_SIZE) - minCellY + 1;
+
+        // Counting sort into a compact cell layout, no per cell collections
+        this.cellStart = new int[columns * rows + 1];
+        this.order = new int[monsters.length];
+
+        final int[] cells = new int[monsters.length];
+        for (int i = 0; i < monsters.length; i++) {
+            cells[i] = (Math.floorDiv(ys[i], CELL_SIZE) - minCellY) * columns + Math.floorDiv(xs[i], CELL_SIZE) - minCellX;
+            cellStart[cells[i] + 1]++;
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+
+        final int[] fill = new int[columns * rows];
+        for (int i = 0; i < monsters.length; i++) {
+            order[cellStart[cells[i]] + fill[cells[i]]++] = i;
+        }
+    }
+
+    public Monster[] getMonsters() {
+        return monsters;
+    }
+
+    /**
+     * Fills {@code result} with up to {@code result.length} monsters within {@code radius} of the given point, nearest first.
+     * Positions are the ones of the snapshot, callers still check the live distance.
+     * @return the number of monsters written
+     */
+    public int nearest(int x, int y, int radius, Monster[] result, long[] distances) {
+        final int k = Math.min(result.length, distances.length);
+        if (k == 0 || monsters.length == 0) return 0;
+
+        final long radiusSq = (long) radius * radius;
+        final int centerX = Math.floorDiv(x, CELL_SIZE) - minCellX;
+        final int centerY = Math.floorDiv(y, CELL_SIZE) - minCellY;
+        final int maxRing = radius / CELL_SIZE + 1;
+
+        int count = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Cells of the next rings are at least ring * CELL_SIZE away, stop once they can't improve the result
+            if (count == k) {
+                final long bound = (long) ring * CELL_SIZE - CELL_SIZE;
+                if (bound > 0 && bound * bound > distances[k - 1]) break;
+            }
+
+            for (int cy = centerY - ring; cy <= centerY + ring; cy++) {
+                if (cy < 0 || cy >= rows) continue;
+
+                final boolean edgeRow = cy == centerY - ring || cy == centerY + ring;
+                final int step = edgeRow ? 1 : Math.max(1, ring * 2);
+
+                for (int cx = centerX - ring; cx <= centerX + ring; cx += step) {
+                    if (cx < 0 || cx >= columns) continue;
+
+                    final int cell = cy * columns + cx;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        final int index = order[i];
+                        final long dx = xs[index] - x;
+                        final long dy = ys[index] - y;
+                        final long distSq = dx * dx + dy * dy;
+                        if (distSq > radiusSq) continue;
+
+                        count = insert(monsters[index], distSq, result, distances, count, k);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int insert(Monster monster, long distSq, Monster[] result, long[] distances, int count, int k) {
+        if (count == k && distSq >= distances[k - 1]) return count;
+
+        // Insertion into the sorted prefix, k is small
+        int position = count == k ? k - 1 : count;
+        while (position > 0 && distances[position - 1] > distSq) {
+            result[position] = result[position - 1];
+            distances[position] = distances[position - 1];
+            position--;
+        }
+        result[position] = monster;
+        distances[position] = distSq;
+        return count == k ? k : count + 1;
+    }
+}
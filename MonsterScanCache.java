@@ -0,0 +1,91 @@
+package gameserver.custom.manager;
+
+import gameserver.model.WorldObject;
+import gameserver.model.WorldRegion;
+import gameserver.model.actor.Player;
+import gameserver.model.actor.instance.Chest;
+import gameserver.model.actor.instance.Monster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MonsterScanCache {
+
+    private static final Monster[] EMPTY = new Monster[0];
+
+    // One scan per region for a whole tick period, shared by every slot and shard ticking in that second
+    private static final long TTL = 1000;
+
+    private final Map<WorldRegion, Scan> scans = new ConcurrentHashMap<>();
+
+    public Monster[] getMonsters(Player player) {
+        final Scan scan = getScan(player);
+        return scan == null ? EMPTY : scan.grid.getMonsters();
+    }
+
+    public int getNearest(Player player, int radius, Monster[] result, long[] distances) {
+        final Scan scan = getScan(player);
+        return scan == null ? 0 : scan.grid.nearest(player.getX(), player.getY(), radius, result, distances);
+    }
+
+    private Scan getScan(Player player) {
+        final WorldRegion region = player.getRegion();
+        if (region == null) return null;
+
+        final long now = System.currentTimeMillis();
+
+        Scan scan = scans.get(region);
+        if (scan == null || now - scan.createdAt >= TTL) {
+            scan = scans.compute(region, (k, previous) -> previous != null && now - previous.createdAt < TTL ? previous : scan(k, now));
+        }
+        return scan;
+    }
+
+    public void invalidate(Monster monster) {
+        final WorldRegion region = monster.getRegion();
+        if (region == null) return;
+
+        // Every scan covering the region of the monster is built again on its next use
+        for (WorldRegion surrounding : region.getSurroundingRegions()) {
+            scans.remove(surrounding);
+        }
+    }
+
+    public void purge(long maxAge) {
+        final long now = System.currentTimeMillis();
+        scans.values().removeIf(scan -> now - scan.createdAt > maxAge);
+    }
+
+    public int size() {
+        return scans.size();
+    }
+
+    private static Scan scan(WorldRegion region, long now) {
+        final List<Monster> monsters = new ArrayList<>();
+
+        for (WorldRegion surrounding : region.getSurroundingRegions()) {
+            for (WorldObject object : surrounding.getObjects()) {
+                if (!(object instanceof Monster monster)) continue;
+                if (monster.isDead() || monster.isRaidRelated() || monster instanceof Chest) continue;
+
+                monsters.add(monster);
+            }
+        }
+        return new Scan(new MonsterGrid(monsters.isEmpty() ? EMPTY : monsters.toArray(EMPTY)), now);
+    }
+
+    private record Scan(MonsterGrid grid, long createdAt) {
+    }
+
+    public static MonsterScanCache getInstance()
+    {
+        return MonsterScanCache.SingletonHolder.INSTANCE;
+    }
+
+    private static class SingletonHolder
+    {
+        protected static final MonsterScanCache INSTANCE = new MonsterScanCache();
+    }
+}
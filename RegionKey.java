@@ -0,0 +1,26 @@
+package gameserver.custom.manager;
+
+public final class RegionKey {
+
+    public static final int SHIFT = 11;
+    public static final int SIZE = 1 << SHIFT;
+
+    private RegionKey() {
+    }
+
+    public static long of(int x, int y) {
+        return ofCell(cell(x), cell(y));
+    }
+
+    public static long ofCell(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    public static int cell(int coordinate) {
+        return coordinate >> SHIFT;
+    }
+
+    public static int cellsFor(int radius) {
+        return (radius + SIZE - 1) >> SHIFT;
+    }
+}
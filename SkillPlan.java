@@ -0,0 +1,112 @@
+package gameserver.custom.model;
+
+import gameserver.model.actor.Player;
+import gameserver.skills.L2Skill;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class SkillPlan {
+
+    public enum Role {
+        HEAL,
+        SELF_BUFF,
+        DEBUFF,
+        SPOIL,
+        DAMAGE;
+
+        public boolean isOnMonster() {
+            return this == DEBUFF || this == SPOIL || this == DAMAGE;
+        }
+    }
+
+    // Every castable skill in priority order, the order in which a rotation tries them
+    private final L2Skill[] rotation;
+    private final Role[] roles;
+    private final L2Skill sweep;
+    private final int maxCastRange;
+
+    private SkillPlan(L2Skill[] rotation, Role[] roles, L2Skill sweep, int maxCastRange) {
+        this.rotation = rotation;
+        this.roles = roles;
+        this.sweep = sweep;
+        this.maxCastRange = maxCastRange;
+    }
+
+    public static SkillPlan compile(Player player, Map<Integer, Integer> skills) {
+        final List<L2Skill> selfBuffs = new ArrayList<>();
+        final List<L2Skill> heals = new ArrayList<>();
+        final List<L2Skill> debuffs = new ArrayList<>();
+        final List<L2Skill> spoils = new ArrayList<>();
+        final List<L2Skill> damages = new ArrayList<>();
+        L2Skill sweep = null;
+        int maxCastRange = player.getStatus().getPhysicalAttackRange();
+
+        // Slot order is kept inside each role
+        for (int slot = 0; slot < HunterImpl.MAX_SKILLS; slot++) {
+            final Integer skillId = skills.get(slot);
+            if (skillId == null) continue;
+
+            final L2Skill skill = player.getSkill(skillId);
+            if (skill == null) continue;
+
+            switch (skill.getSkillType()) {
+                case SWEEP -> {
+                    if (sweep == null) sweep = skill;
+                }
+                case HEAL -> heals.add(skill);
+                case BUFF -> selfBuffs.add(skill);
+                case DEBUFF -> debuffs.add(skill);
+                case SPOIL -> spoils.add(skill);
+                default -> damages.add(skill);
+            }
+            maxCastRange = Math.max(maxCastRange, skill.getCastRange());
+        }
+
+        final int size = heals.size() + selfBuffs.size() + debuffs.size() + spoils.size() + damages.size();
+        final L2Skill[] rotation = new L2Skill[size];
+        final Role[] roles = new Role[size];
+
+        int index = 0;
+        index = append(heals, Role.HEAL, rotation, roles, index);
+        index = append(selfBuffs, Role.SELF_BUFF, rotation, roles, index);
+        index = append(debuffs, Role.DEBUFF, rotation, roles, index);
+        index = append(spoils, Role.SPOIL, rotation, roles, index);
+        append(damages, Role.DAMAGE, rotation, roles, index);
+
+        return new SkillPlan(rotation, roles, sweep, maxCastRange);
+    }
+
+    private static int append(List<L2Skill> skills, Role role, L2Skill[] rotation, Role[] roles, int index) {
+        for (L2Skill skill : skills) {
+            rotation[index] = skill;
+            roles[index++] = role;
+        }
+        return index;
+    }
+
+    public int getMaxCastRange() {
+        return maxCastRange;
+    }
+
+    public int size() {
+        return rotation.length;
+    }
+
+    public L2Skill getSkill(int index) {
+        return rotation[index];
+    }
+
+    public Role getRole(int index) {
+        return roles[index];
+    }
+
+    public L2Skill getSweep() {
+        return sweep;
+    }
+
+    public boolean isEmpty() {
+        return rotation.length == 0;
+    }
+}
@@ -0,0 +1,77 @@
+package gameserver.custom.manager;
+
+import gameserver.model.actor.Player;
+import gameserver.model.actor.instance.Monster;
+import gameserver.model.group.Party;
+import config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TargetClaims {
+
+    private final Map<Integer, Claim> claims = new ConcurrentHashMap<>();
+
+    public boolean tryClaim(Player player, Monster monster) {
+        final long now = System.currentTimeMillis();
+        final Claim claim = new Claim(player, now + Config.AUTO_FARM_CLAIM_LEASE);
+
+        // Compare and set retries, no hunter ever waits on another one
+        while (true) {
+            final Claim current = claims.get(monster.getObjectId());
+            if (current == null) {
+                if (claims.putIfAbsent(monster.getObjectId(), claim) == null) return true;
+                continue;
+            }
+
+            if (current.owner != player && !current.isExpired(now)) return isSameParty(player, current.owner);
+            if (claims.replace(monster.getObjectId(), current, claim)) return true;
+        }
+    }
+
+    public boolean isClaimedByOther(Player player, Monster monster) {
+        final Claim current = claims.get(monster.getObjectId());
+        if (current == null || current.owner == player || current.isExpired(System.currentTimeMillis())) return false;
+
+        return !isSameParty(player, current.owner);
+    }
+
+    public void release(int monsterId) {
+        claims.remove(monsterId);
+    }
+
+    public void releaseAll(int playerId) {
+        claims.values().removeIf(claim -> claim.owner.getObjectId() == playerId);
+    }
+
+    public void purge() {
+        final long now = System.currentTimeMillis();
+        claims.values().removeIf(claim -> claim.isExpired(now));
+    }
+
+    public int size() {
+        return claims.size();
+    }
+
+    private static boolean isSameParty(Player player, Player owner) {
+        final Party party = player.getParty();
+        return party != null && party.containsPlayer(owner);
+    }
+
+    private record Claim(Player owner, long expiresAt) {
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    public static TargetClaims getInstance()
+    {
+        return TargetClaims.SingletonHolder.INSTANCE;
+    }
+
+    private static class SingletonHolder
+    {
+        protected static final TargetClaims INSTANCE = new TargetClaims();
+    }
+}
@@ -0,0 +1,79 @@
+package gameserver.custom.util;
+
+import java.util.Arrays;
+
+public class TickStats {
+
+    private static final int DEFAULT_SAMPLES = 1024;
+
+    private final long[] samples;
+    private int position;
+    private int size;
+
+    private long last;
+    private long max;
+    private long total;
+    private long count;
+
+    public TickStats() {
+        this(DEFAULT_SAMPLES);
+    }
+
+    public TickStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[position] = nanos;
+        position = (position + 1) % samples.length;
+        if (size < samples.length) size++;
+
+        last = nanos;
+        if (nanos > max) max = nanos;
+        total += nanos;
+        count++;
+    }
+
+    public synchronized long getLast() {
+        return last;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized long getAverage() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long[] snapshot() {
+        return Arrays.copyOf(samples, size);
+    }
+
+    public long getPercentile(double percentile) {
+        return percentile(snapshot(), percentile);
+    }
+
+    public synchronized void reset() {
+        position = 0;
+        size = 0;
+        last = 0;
+        max = 0;
+        total = 0;
+        count = 0;
+    }
+
+    public static long percentile(long[] values, double percentile) {
+        if (values.length == 0) return 0;
+
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -1,6 +1,7 @@
 CREATE TABLE IF NOT EXISTS `auto_farm` (
     `player_id` INT UNSIGNED NOT NULL DEFAULT 0,
     `name` VARCHAR(35),
-    `remaining_minutes` INT NOT NULL DEFAULT 0,
+    `remaining_seconds` INT NOT NULL DEFAULT 0,
+    `profile` VARBINARY(64) NULL,
     PRIMARY KEY (`player_id`)
 );
\ No newline at end of file
@@ -0,0 +1,9 @@
+-- Run once on a server installed before remaining_seconds and profile existed, before starting it with the new version.
+-- Fresh installs only need autofarm.sql.
+
+-- The balance is kept in seconds instead of minutes
+ALTER TABLE `auto_farm` CHANGE `remaining_minutes` `remaining_seconds` INT NOT NULL DEFAULT 0;
+UPDATE `auto_farm` SET `remaining_seconds` = `remaining_seconds` * 60;
+
+-- Hunter settings are stored, a NULL profile loads the defaults
+ALTER TABLE `auto_farm` ADD `profile` VARBINARY(64) NULL AFTER `remaining_seconds`;
\ No newline at end of file